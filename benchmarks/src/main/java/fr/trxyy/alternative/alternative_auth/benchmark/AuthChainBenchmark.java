@@ -0,0 +1,100 @@
+package fr.trxyy.alternative.alternative_auth.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.trxyy.alternative.alternative_auth.account.Session;
+import fr.trxyy.alternative.alternative_auth.base.AuthEndpoints;
+import fr.trxyy.alternative.alternative_auth.base.Futures;
+import fr.trxyy.alternative.alternative_auth.microsoft.DeviceCodePoller;
+import fr.trxyy.alternative.alternative_auth.microsoft.MicrosoftOAuthClient;
+import fr.trxyy.alternative.alternative_auth.microsoft.MicrosoftOAuthClient.DeviceCode;
+import fr.trxyy.alternative.alternative_auth.microsoft.MicrosoftXboxAuth;
+import fr.trxyy.alternative.alternative_auth.microsoft.XboxTokenCache;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MicrosoftModel;
+import fr.trxyy.alternative.alternative_auth.stub.StandInAuthServer;
+
+/**
+ * Chaîne réseau complète contre le {@link StandInAuthServer} local (latence nulle) : débit et
+ * percentiles de latence (SampleTime). Lancer avec {@code -prof gc} pour
+ * l'allocation par opération.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthChainBenchmark {
+
+    private static final String ACCOUNT = "benchmark-account";
+
+    private StandInAuthServer server;
+
+    private MicrosoftOAuthClient oauth;
+    private MicrosoftXboxAuth uncached;
+    private MicrosoftXboxAuth cached;
+    private XboxTokenCache cache;
+    private DeviceCode deviceCode;
+    private DeviceCodePoller poller;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        this.server = new StandInAuthServer();
+        this.server.start();
+        this.server.install();
+
+        this.oauth = new MicrosoftOAuthClient();
+        this.uncached = new MicrosoftXboxAuth(new XboxTokenCache(0L));
+        this.cache = new XboxTokenCache(XboxTokenCache.DEFAULT_SAFETY_MARGIN_MS);
+        this.cached = new MicrosoftXboxAuth(this.cache);
+        this.deviceCode = new DeviceCode("device-code", "ABCD1234", "https://www.microsoft.com/link", 0, 900);
+        this.poller = new DeviceCodePoller(0L);     // pas d'intervalle : premier polling immédiat
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws Exception {
+        AuthEndpoints.reset();
+        this.poller.shutdown();
+        this.server.close();
+    }
+
+    /** XBL → XSTS → login_with_xbox → profile, sans cache. */
+    @Benchmark
+    public Session getLiveToken() throws Exception {
+        return this.uncached.getLiveToken(Payloads.ACCESS_TOKEN);
+    }
+
+    /** Cas courant au relancement : XBL/XSTS en cache, token Minecraft expiré. */
+    @Benchmark
+    public Session getLiveTokenXstsCached() throws Exception {
+        this.cache.invalidate(ACCOUNT, XboxTokenCache.Layer.MINECRAFT);
+        return this.cached.getLiveToken(ACCOUNT, Payloads.ACCESS_TOKEN);
+    }
+
+    @Benchmark
+    public MicrosoftModel refreshWithToken() throws Exception {
+        return this.oauth.refreshWithToken(Payloads.REFRESH_TOKEN);
+    }
+
+    /**
+     * Un seul tour de polling : le device code n'a pas d'intervalle et le poller
+     * n'en impose pas, le serveur délivre le token immédiatement.
+     */
+    @Benchmark
+    public MicrosoftModel pollForToken() throws Exception {
+        return Futures.await(this.poller.poll(this.oauth, this.deviceCode, Futures.defaultExecutor()));
+    }
+}
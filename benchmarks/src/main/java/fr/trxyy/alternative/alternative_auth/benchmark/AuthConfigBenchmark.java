@@ -0,0 +1,83 @@
+package fr.trxyy.alternative.alternative_auth.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.trxyy.alternative.alternative_auth.base.AuthCodec;
+import fr.trxyy.alternative.alternative_auth.base.AuthConfig;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MicrosoftModel;
+
+/**
+ * Lecture / écriture du fichier auth_infos.json. Les mises à jour sont en
+ * mémoire (écriture disque regroupée en arrière-plan) ; {@link #updateValuesAndFlush()}
+ * mesure le coût d'une écriture durable (fichier temporaire + fsync + rename).
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthConfigBenchmark {
+
+    private File directory;
+    private AuthConfig config;
+    private MicrosoftModel model;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.directory = Files.createTempDirectory("aauth-bench").toFile();
+        this.model = AuthCodec.decode(new ByteArrayInputStream(Payloads.bytes(Payloads.MICROSOFT_TOKEN)), MicrosoftModel.class);
+        this.model.markObtained();
+        this.config = new AuthConfig();
+        this.config.authConfig = new File(this.directory, "auth_infos.json");
+        this.config.createConfigFile(this.model);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.config.flush();
+        File[] files = this.directory.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        this.directory.delete();
+    }
+
+    @Benchmark
+    public void createConfigFile() {
+        this.config.createConfigFile(this.model);
+    }
+
+    @Benchmark
+    public void updateValues() {
+        this.config.updateValues(this.model);
+    }
+
+    @Benchmark
+    public void updateValuesAndFlush() throws Exception {
+        this.config.updateValues(this.model);
+        this.config.flush();
+    }
+
+    @Benchmark
+    public MicrosoftModel loadConfiguration() {
+        this.config.loadConfiguration();
+        return this.config.microsoftModel;
+    }
+}
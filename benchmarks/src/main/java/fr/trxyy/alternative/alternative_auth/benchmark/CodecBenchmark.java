@@ -0,0 +1,74 @@
+package fr.trxyy.alternative.alternative_auth.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.GsonBuilder;
+
+import fr.trxyy.alternative.alternative_auth.base.AuthCodec;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MicrosoftModel;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MinecraftMicrosoftModel;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MinecraftProfileModel;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MinecraftStoreModel;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.XboxLiveModel;
+
+/**
+ * Décodage JSON de chaque modèle : codec partagé en flux contre l'ancien
+ * chemin (GsonBuilder neuf + String intermédiaire + réflexion).
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({ "MicrosoftModel", "XboxLiveModel", "MinecraftMicrosoftModel", "MinecraftProfileModel", "MinecraftStoreModel" })
+    public String model;
+
+    private Class<?> type;
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        switch (this.model) {
+            case "MicrosoftModel":          select(MicrosoftModel.class, Payloads.MICROSOFT_TOKEN); break;
+            case "XboxLiveModel":           select(XboxLiveModel.class, Payloads.XBOX_LIVE); break;
+            case "MinecraftMicrosoftModel": select(MinecraftMicrosoftModel.class, Payloads.MINECRAFT_LOGIN); break;
+            case "MinecraftProfileModel":   select(MinecraftProfileModel.class, Payloads.MINECRAFT_PROFILE); break;
+            case "MinecraftStoreModel":     select(MinecraftStoreModel.class, Payloads.MINECRAFT_STORE); break;
+            default: throw new IllegalArgumentException(this.model);
+        }
+    }
+
+    private void select(Class<?> type, String json) {
+        this.type = type;
+        this.body = Payloads.bytes(json);
+    }
+
+    @Benchmark
+    public Object sharedCodecStream() throws Exception {
+        return AuthCodec.decode(new ByteArrayInputStream(this.body), this.type);
+    }
+
+    @Benchmark
+    public Object legacyReflective() {
+        String json = new String(this.body, StandardCharsets.UTF_8);
+        return new GsonBuilder().enableComplexMapKeySerialization().setPrettyPrinting().create()
+                .fromJson(json, this.type);
+    }
+}
@@ -0,0 +1,50 @@
+package fr.trxyy.alternative.alternative_auth.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.trxyy.alternative.alternative_auth.base.Logger;
+
+/**
+ * Coût d'un log de niveau désactivé (DEBUG sous INFO) sur le chemin des
+ * requêtes : message à {} contre l'ancienne concaténation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class LoggerBenchmark {
+
+    private String url = "https://user.auth.xboxlive.com/user/authenticate";
+    private int status = 200;
+    private long elapsed = 42L;
+
+    @Setup
+    public void setUp() {
+        Logger.setLevel(Logger.Level.INFO);
+    }
+
+    @Benchmark
+    public void placeholders() {
+        Logger.debug("{} {} → HTTP {} ({} ms)", "POST", this.url, this.status, this.elapsed);
+    }
+
+    @Benchmark
+    public void concatenated() {
+        Logger.debug("POST " + this.url + " → HTTP " + this.status + " (" + this.elapsed + " ms)");
+    }
+}
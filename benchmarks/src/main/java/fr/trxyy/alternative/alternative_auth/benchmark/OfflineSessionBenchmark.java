@@ -0,0 +1,52 @@
+package fr.trxyy.alternative.alternative_auth.benchmark;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.trxyy.alternative.alternative_auth.account.OfflineSessionFactory;
+import fr.trxyy.alternative.alternative_auth.account.Session;
+
+/**
+ * Sessions hors ligne générées depuis plusieurs threads : {@link OfflineSessionFactory}
+ * contre l'ancien chemin (SecureRandom derrière un verrou, UUID aléatoire).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class OfflineSessionBenchmark {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private int next;
+
+    @Benchmark
+    public Session factory() {
+        return OfflineSessionFactory.create("bot" + (this.next++ & 0xFFFF));
+    }
+
+    @Benchmark
+    public Session legacy() {
+        String name = "bot" + (this.next++ & 0xFFFF);
+        return new Session(name, legacyToken(name), UUID.randomUUID().toString().replace("-", ""));
+    }
+
+    private static synchronized String legacyToken(String username) {
+        return username + ":" + Long.toString(Math.abs(RANDOM.nextLong()), 16);
+    }
+}
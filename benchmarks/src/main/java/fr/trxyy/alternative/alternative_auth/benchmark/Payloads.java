@@ -0,0 +1,53 @@
+package fr.trxyy.alternative.alternative_auth.benchmark;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Réponses types des endpoints Microsoft / Xbox / Minecraft, de taille réaliste.
+ */
+final class Payloads {
+
+    static final String ACCESS_TOKEN = repeat("EwBgA+l3BAAUcDnR9grBJokeAHaUV8R3+rVHX+k", 30);
+    static final String REFRESH_TOKEN = repeat("M.C519_BAY.0.U.-CjV7Kbo!dHfJ3bZ1a2", 20);
+    static final String XBL_TOKEN = repeat("eyJlbmMiOiJBMTI4Q0JDK0hTMjU2IiwiYWxnIjoiUlNBLU9BRVAi", 25);
+    static final String MC_TOKEN = "eyJraWQiOiJhYzg0YSIsImFsZyI6IkhTMjU2In0."
+            + repeat("eyJ4dWlkIjoiMjUzNTQ3MjQ1NTQ1NDU0NSIsImFnZyI6IkFkdWx0Iiwic3ViIjoi", 8)
+            + ".c2lnbmF0dXJl";
+
+    static final String DEVICE_CODE = "{\"user_code\":\"ABCD1234\",\"device_code\":\"DAQABAAEAAAD--DLA3VO7QrddgJg7Wevr\","
+            + "\"verification_uri\":\"https://www.microsoft.com/link\",\"expires_in\":900,\"interval\":0,"
+            + "\"message\":\"To sign in, use a web browser to open the page https://www.microsoft.com/link\"}";
+
+    static final String MICROSOFT_TOKEN = "{\"token_type\":\"Bearer\",\"scope\":\"XboxLive.signin XboxLive.offline_access\","
+            + "\"expires_in\":3600,\"ext_expires_in\":3600,\"access_token\":\"" + ACCESS_TOKEN + "\","
+            + "\"refresh_token\":\"" + REFRESH_TOKEN + "\",\"foci\":\"1\"}";
+
+    static final String XBOX_LIVE = "{\"IssueInstant\":\"2024-05-01T12:34:56.1234567Z\","
+            + "\"NotAfter\":\"2099-05-15T12:34:56.1234567Z\",\"Token\":\"" + XBL_TOKEN + "\","
+            + "\"DisplayClaims\":{\"xui\":[{\"uhs\":\"2535472455454545\"}]}}";
+
+    static final String MINECRAFT_LOGIN = "{\"username\":\"b7a5c1d0-1c5a-4c47-9a6f-2b0e7a6f8f11\",\"roles\":[],"
+            + "\"metadata\":{},\"access_token\":\"" + MC_TOKEN + "\",\"expires_in\":86400,\"token_type\":\"Bearer\"}";
+
+    static final String MINECRAFT_PROFILE = "{\"id\":\"069a79f444e94726a5befca90e38aaf5\",\"name\":\"Notch\","
+            + "\"skins\":[{\"id\":\"6a6e65e5-76dd-4c3c-a625-162924514568\",\"state\":\"ACTIVE\","
+            + "\"url\":\"http://textures.minecraft.net/texture/292009a4925b58f02c77dadc3ecef07ea4c7472f64e0fdc32ce5522489362680\","
+            + "\"textureKey\":\"292009a4925b58f02c77dadc3ecef07ea4c7472f64e0fdc32ce5522489362680\",\"variant\":\"CLASSIC\"}],"
+            + "\"capes\":[]}";
+
+    static final String MINECRAFT_STORE = "{\"items\":[{\"name\":\"product_minecraft\",\"signature\":\""
+            + repeat("eyJ0eXAiOiJKV1Qi", 20) + "\"},{\"name\":\"game_minecraft\",\"signature\":\""
+            + repeat("eyJ0eXAiOiJKV1Qi", 20) + "\"}],\"signature\":\"" + repeat("c2ln", 40) + "\",\"keyId\":\"1\"}";
+
+    static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String repeat(String s, int n) {
+        StringBuilder sb = new StringBuilder(s.length() * n);
+        for (int i = 0; i < n; i++) sb.append(s);
+        return sb.toString();
+    }
+
+    private Payloads() {}
+}
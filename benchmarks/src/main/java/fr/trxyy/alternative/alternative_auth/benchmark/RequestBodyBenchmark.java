@@ -0,0 +1,90 @@
+package fr.trxyy.alternative.alternative_auth.benchmark;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicNameValuePair;
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.trxyy.alternative.alternative_auth.base.AuthConstants;
+import fr.trxyy.alternative.alternative_auth.http.RequestTemplate;
+
+/**
+ * Encodage des corps de requête : modèles précompilés contre l'ancien
+ * chemin (Maps imbriquées + json-simple, formulaire encodé à chaque appel).
+ * Le corps est écrit dans un flux qui ignore les octets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBodyBenchmark {
+
+    private static final RequestTemplate XSTS = RequestTemplate.json(
+            "{\"Properties\":{\"SandboxId\":\"RETAIL\",\"UserTokens\":[\"%s\"]},"
+            + "\"RelyingParty\":\"rp://api.minecraftservices.com/\",\"TokenType\":\"JWT\"}");
+    private static final RequestTemplate REFRESH = RequestTemplate.form(
+            "client_id", "33250748-fc1d-4053-825e-1e7b345d5d95", "grant_type", "refresh_token",
+            "refresh_token", null, "scope", "XboxLive.signin offline_access");
+
+    private static final OutputStream SINK = new OutputStream() {
+        @Override public void write(int b) {}
+        @Override public void write(byte[] b, int off, int len) {}
+    };
+
+    @Benchmark
+    public void xstsTemplate() throws Exception {
+        XSTS.entity(Payloads.XBL_TOKEN).writeTo(SINK);
+    }
+
+    @Benchmark
+    public void xstsLegacyMaps() throws Exception {
+        Map<Object, Object> m = new HashMap<>();
+        Map<Object, Object> props = new HashMap<>();
+        props.put("SandboxId", "RETAIL");
+        props.put("UserTokens", Collections.singletonList(Payloads.XBL_TOKEN));
+        m.put("Properties", props);
+        m.put("RelyingParty", "rp://api.minecraftservices.com/");
+        m.put("TokenType", "JWT");
+        new StringEntity(new JSONObject(m).toJSONString(), ContentType.APPLICATION_JSON).writeTo(SINK);
+    }
+
+    @Benchmark
+    public void refreshTemplate() throws Exception {
+        REFRESH.entity(Payloads.REFRESH_TOKEN).writeTo(SINK);
+    }
+
+    @Benchmark
+    public void refreshLegacyForm() throws Exception {
+        Map<String, String> body = new HashMap<>();
+        body.put("client_id", "33250748-fc1d-4053-825e-1e7b345d5d95");
+        body.put("grant_type", "refresh_token");
+        body.put("refresh_token", Payloads.REFRESH_TOKEN);
+        body.put("scope", "XboxLive.signin offline_access");
+        List<NameValuePair> pairs = new ArrayList<>(body.size());
+        for (Map.Entry<String, String> e : body.entrySet()) {
+            pairs.add(new BasicNameValuePair(e.getKey(), e.getValue()));
+        }
+        new UrlEncodedFormEntity(pairs, AuthConstants.UTF_8).writeTo(SINK);
+    }
+}
@@ -0,0 +1,272 @@
+package fr.trxyy.alternative.alternative_auth.account;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import fr.trxyy.alternative.alternative_auth.base.AuthConfig;
+import fr.trxyy.alternative.alternative_auth.base.AuthConstants;
+import fr.trxyy.alternative.alternative_auth.base.ConfigFileStore;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MicrosoftModel;
+
+/**
+ * Stockage de nombreux comptes Microsoft, un fichier par compte.
+ *
+ *   • {@code <racine>/<xx>/<clé en hexa>.json}, où {@code xx} répartit les
+ *     fichiers sur 256 sous-dossiers ; une clé de plus de {@value #MAX_HEX_BYTES}
+ *     octets devient {@code _<sha-256>.json} (limite de 255 caractères des
+ *     noms de fichiers) et est recopiée dans le fichier ;
+ *   • accès direct à un compte (le chemin se déduit de la clé), fichier lu
+ *     au premier accès seulement ;
+ *   • mettre à jour un compte ne réécrit que son fichier (écriture atomique
+ *     et regroupée, voir {@link ConfigFileStore}) ;
+ *   • au plus {@value #MAX_OPEN} comptes restent ouverts en mémoire : au-delà,
+ *     les moins récemment utilisés dont l'écriture est terminée sont fermés.
+ *
+ * La clé est libre (user_id, UUID...) ; elle est encodée en hexadécimal pour
+ * rester un nom de fichier valide sur les systèmes insensibles à la casse.
+ */
+public class AccountStore {
+
+    private static final String SUFFIX = ".json";
+    /** Clés plus longues : nom de fichier haché. */
+    static final int MAX_HEX_BYTES = 100;
+    private static final String HASHED_PREFIX = "_";
+    /** Clé du compte, écrite dans les fichiers à nom haché. */
+    private static final String ACCOUNT_FIELD = "account";
+    static final int MAX_OPEN = 1024;
+    /** Entrées examinées au plus par fermeture (les comptes en cours d'écriture sont sautés). */
+    private static final int CLOSE_SCAN = 64;
+
+    private final File root;
+    /**
+     * Comptes ouverts, du moins au plus récemment utilisé : le modèle décodé
+     * reste en mémoire d'un accès à l'autre. Protégé par son propre moniteur.
+     */
+    private final LinkedHashMap<String, AuthConfig> configs = new LinkedHashMap<>(16, 0.75f, true);
+    /** Clés présentes sur disque, construit au premier appel de {@link #accounts()}. */
+    private volatile Set<String> known;
+
+    /** Stockage dans {@code accounts/} du dossier par défaut ({@link AuthConfig#defaultDirectory()}). */
+    public AccountStore() {
+        this(new File(AuthConfig.defaultDirectory(), "accounts"));
+    }
+
+    /**
+     * @param root Dossier racine (créé à la première écriture)
+     */
+    public AccountStore(File root) {
+        this.root = root;
+    }
+
+    public File getRoot() {
+        return this.root;
+    }
+
+    /*──────────────────── Accès ────────────────────*/
+
+    /** @return La configuration du compte (le fichier n'existe peut-être pas encore). */
+    public AuthConfig config(String account) {
+        synchronized (this.configs) {
+            AuthConfig config = this.configs.get(account);
+            if (config == null) {
+                config = new AuthConfig(fileOf(account));
+                this.configs.put(account, config);
+                if (this.configs.size() > MAX_OPEN) closeIdle();
+            }
+            return config;
+        }
+    }
+
+    public boolean contains(String account) {
+        Set<String> k = this.known;
+        if (k != null) return k.contains(account);
+        return config(account).canRefresh();
+    }
+
+    /** @return Les tokens enregistrés du compte, ou {@code null} s'il est inconnu. */
+    public MicrosoftModel load(String account) {
+        AuthConfig config = config(account);
+        synchronized (config) {
+            if (!config.canRefresh()) return null;
+            config.loadConfiguration();
+            return config.microsoftModel;
+        }
+    }
+
+    /** Enregistre (ou met à jour) les tokens d'un compte. */
+    public void save(String account, MicrosoftModel model) {
+        AuthConfig config = config(account);
+        synchronized (config) {
+            config.updateValues(model);
+            if (config.authConfig.getName().startsWith(HASHED_PREFIX)) {
+                config.updateValue(ACCOUNT_FIELD, account);
+            }
+        }
+        Set<String> k = this.known;
+        if (k != null) k.add(account);
+    }
+
+    /** Enregistre les tokens sous leur {@code user_id}. */
+    public void save(MicrosoftModel model) {
+        if (model.getUser_id() == null) {
+            throw new IllegalStateException("Impossible d'enregistrer le compte : user_id absent");
+        }
+        save(model.getUser_id(), model);
+    }
+
+    /** @return true si le compte existait */
+    public boolean remove(String account) throws IOException {
+        AuthConfig config = config(account);
+        boolean existed;
+        synchronized (config) {
+            existed = config.canRefresh();
+            ConfigFileStore.forFile(config.authConfig).delete();
+        }
+        synchronized (this.configs) {
+            this.configs.remove(account);
+        }
+        Set<String> k = this.known;
+        if (k != null) k.remove(account);
+        return existed;
+    }
+
+    /**
+     * @return Les clés de tous les comptes enregistrés. Le dossier n'est parcouru
+     *         qu'une fois ; la vue reste ensuite à jour.
+     */
+    public Set<String> accounts() throws IOException {
+        Set<String> k = this.known;
+        if (k == null) {
+            synchronized (this) {
+                k = this.known;
+                if (k == null) {
+                    this.known = k = scan();
+                }
+            }
+        }
+        return Collections.unmodifiableSet(k);
+    }
+
+    /**
+     * Charge tous les comptes (ex. pour {@code BulkRefresher#refreshAll}).
+     * Les comptes illisibles sont ignorés.
+     */
+    public Map<String, MicrosoftModel> loadAll() throws IOException {
+        Map<String, MicrosoftModel> all = new LinkedHashMap<>();
+        for (String account : accounts()) {
+            MicrosoftModel model = load(account);
+            if (model != null) all.put(account, model);
+        }
+        return all;
+    }
+
+    /** Écrit tout de suite les modifications en attente des comptes ouverts. */
+    public void flush() throws IOException {
+        for (AuthConfig config : openConfigs().values()) {
+            config.flush();
+        }
+    }
+
+    /** @return Le fichier du compte */
+    public File fileOf(String account) {
+        byte[] bytes = account.getBytes(AuthConstants.UTF_8);
+        boolean hashed = bytes.length > MAX_HEX_BYTES;
+        if (hashed) bytes = sha256(bytes);
+        StringBuilder name = new StringBuilder(bytes.length * 2 + SUFFIX.length() + 1);
+        if (hashed) name.append(HASHED_PREFIX);
+        for (byte b : bytes) {
+            name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        name.append(SUFFIX);
+        int h = account.hashCode();
+        String shard = String.format("%02x", (h ^ (h >>> 8) ^ (h >>> 16) ^ (h >>> 24)) & 0xFF);
+        return new File(new File(this.root, shard), name.toString());
+    }
+
+    /*──────────────────── Interne ────────────────────*/
+
+    /**
+     * Ferme les comptes ouverts les moins récemment utilisés jusqu'à revenir à
+     * {@link #MAX_OPEN}. Un compte dont l'écriture est en attente reste ouvert
+     * (il sera fermé à un prochain passage). Appelé sous le moniteur de configs.
+     */
+    private void closeIdle() {
+        int excess = this.configs.size() - MAX_OPEN;
+        Iterator<AuthConfig> eldest = this.configs.values().iterator();
+        for (int scanned = 0; excess > 0 && scanned < CLOSE_SCAN && eldest.hasNext(); scanned++) {
+            if (!eldest.next().hasPendingWrites()) {
+                eldest.remove();
+                excess--;
+            }
+        }
+    }
+
+    private Map<String, AuthConfig> openConfigs() {
+        synchronized (this.configs) {
+            return new LinkedHashMap<>(this.configs);
+        }
+    }
+
+    private Set<String> scan() throws IOException {
+        Set<String> found = ConcurrentHashMap.newKeySet();
+        for (Map.Entry<String, AuthConfig> open : openConfigs().entrySet()) {
+            if (open.getValue().canRefresh()) found.add(open.getKey());     // pas encore sur disque
+        }
+        Path rootPath = this.root.toPath();
+        if (!Files.isDirectory(rootPath)) return found;
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(rootPath)) {
+            for (Path shard : shards) {
+                if (!Files.isDirectory(shard)) continue;
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(shard, "*" + SUFFIX)) {
+                    for (Path file : files) {
+                        String account = decode(file);
+                        if (account != null) found.add(account);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private static String decode(Path file) {
+        String fileName = file.getFileName().toString();
+        if (fileName.startsWith(HASHED_PREFIX)) {
+            // nom haché : la clé est dans le fichier
+            JsonObject values = ConfigFileStore.forFile(file.toFile()).snapshot();
+            JsonElement account = values == null ? null : values.get(ACCOUNT_FIELD);
+            return account == null || !account.isJsonPrimitive() ? null : account.getAsString();
+        }
+        String hex = fileName.substring(0, fileName.length() - SUFFIX.length());
+        if (hex.isEmpty() || (hex.length() & 1) != 0) return null;
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int hi = Character.digit(hex.charAt(2 * i), 16);
+            int lo = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) return null;
+            bytes[i] = (byte) ((hi << 4) | lo);
+        }
+        return new String(bytes, AuthConstants.UTF_8);
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+}
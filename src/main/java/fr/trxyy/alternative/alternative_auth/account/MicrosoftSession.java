@@ -0,0 +1,89 @@
+package fr.trxyy.alternative.alternative_auth.account;
+
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MinecraftProfileModel;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MinecraftStoreModel;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.StoreItem;
+
+/**
+ * Session Microsoft enrichie du profil Minecraft et des droits (mcstore),
+ * récupérés en parallèle à la fin de la chaîne Xbox.
+ */
+public class MicrosoftSession extends Session {
+
+	/**
+	 * The Minecraft profile (skins, ...)
+	 */
+	private final MinecraftProfileModel profile;
+	/**
+	 * The entitlements, null if the mcstore call failed
+	 */
+	private final MinecraftStoreModel entitlements;
+
+	/**
+	 * The Constructor
+	 * @param user The username
+	 * @param tken The token
+	 * @param uid The uuid
+	 * @param profile The Minecraft profile
+	 * @param entitlements The entitlements (may be null)
+	 */
+	public MicrosoftSession(String user, String tken, String uid,
+			MinecraftProfileModel profile, MinecraftStoreModel entitlements) {
+		super(user, tken, uid);
+		this.profile = profile;
+		this.entitlements = entitlements;
+	}
+
+	/**
+	 * The Constructor
+	 * @param same The MicrosoftSession
+	 */
+	public MicrosoftSession(MicrosoftSession same) {
+		super(same);
+		this.profile = same.profile;
+		this.entitlements = same.entitlements;
+	}
+
+	@Override
+	public Session copy() {
+		return new MicrosoftSession(this);
+	}
+
+	/**
+	 * @return The Minecraft profile
+	 */
+	public MinecraftProfileModel getProfile() {
+		return profile;
+	}
+
+	/**
+	 * @return The entitlements, or null if they could not be fetched
+	 */
+	public MinecraftStoreModel getEntitlements() {
+		return entitlements;
+	}
+
+	/**
+	 * @return true if the entitlements are known (mcstore answered)
+	 */
+	public boolean hasEntitlements() {
+		return entitlements != null;
+	}
+
+	/**
+	 * @return true if the account owns Minecraft Java Edition.
+	 *         false if not, or if the entitlements are unknown (see {@link #hasEntitlements()})
+	 */
+	public boolean ownsMinecraft() {
+		if (entitlements == null || entitlements.getItems() == null) {
+			return false;
+		}
+		for (StoreItem item : entitlements.getItems()) {
+			if ("product_minecraft".equals(item.getName()) || "game_minecraft".equals(item.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
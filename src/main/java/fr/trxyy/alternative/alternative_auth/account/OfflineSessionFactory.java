@@ -0,0 +1,91 @@
+package fr.trxyy.alternative.alternative_auth.account;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import fr.trxyy.alternative.alternative_auth.base.AuthConstants;
+
+/**
+ * Sessions hors ligne (serveurs en {@code online-mode=false}, bots de test).
+ *
+ *   • UUID identique à celui du serveur vanilla : UUID de type 3 (MD5) de
+ *     {@code "OfflinePlayer:" + pseudo}, donc stable d'un lancement à l'autre ;
+ *   • token aléatoire par thread ({@link ThreadLocalRandom}), sans verrou partagé ;
+ *   • génération en masse via {@link #sessions(String, long)}, parallélisable.
+ */
+public final class OfflineSessionFactory {
+
+    private static final String PREFIX = "OfflinePlayer:";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 indisponible", e);
+        }
+    });
+
+    /**
+     * @return Une session hors ligne : UUID vanilla (sans tirets) et token aléatoire
+     */
+    public static Session create(String username) {
+        return new Session(username, token(username), uuidString(username));
+    }
+
+    /**
+     * Sessions {@code prefix + 0} à {@code prefix + (count - 1)}, produites à la
+     * demande ({@code .parallel()} pour utiliser tous les cœurs).
+     * Le pseudo Minecraft est limité à 16 caractères : prévoir un préfixe court.
+     */
+    public static Stream<Session> sessions(String prefix, long count) {
+        return LongStream.range(0, count).mapToObj(i -> create(prefix + i));
+    }
+
+    /** @return L'UUID hors ligne vanilla, identique à {@code UUID.nameUUIDFromBytes("OfflinePlayer:" + pseudo)}. */
+    public static UUID uuid(String username) {
+        byte[] md5 = digest(username);
+        return new UUID(toLong(md5, 0), toLong(md5, 8));
+    }
+
+    /** @return L'UUID hors ligne au format sans tirets attendu par le jeu */
+    public static String uuidString(String username) {
+        byte[] md5 = digest(username);
+        char[] out = new char[32];
+        for (int i = 0; i < 16; i++) {
+            out[2 * i] = HEX[(md5[i] >> 4) & 0xF];
+            out[2 * i + 1] = HEX[md5[i] & 0xF];
+        }
+        return new String(out);
+    }
+
+    /** @return Un token {@code pseudo:hex} (le format de {@code TokenGenerator}) */
+    public static String token(String username) {
+        long value = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+        return username + ":" + Long.toHexString(value);
+    }
+
+    /** MD5 de {@code "OfflinePlayer:" + pseudo}, avec les bits de version (3) et de variante (IETF). */
+    private static byte[] digest(String username) {
+        MessageDigest md5 = MD5.get();
+        md5.update(PREFIX.getBytes(AuthConstants.UTF_8));
+        byte[] hash = md5.digest(username.getBytes(AuthConstants.UTF_8));
+        hash[6] = (byte) ((hash[6] & 0x0F) | 0x30);
+        hash[8] = (byte) ((hash[8] & 0x3F) | 0x80);
+        return hash;
+    }
+
+    private static long toLong(byte[] b, int offset) {
+        long v = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            v = (v << 8) | (b[i] & 0xFF);
+        }
+        return v;
+    }
+
+    private OfflineSessionFactory() {}
+}
@@ -45,6 +45,13 @@ public class Session {
 		this.uuId = same.uuId;
 	}
 
+	/**
+	 * @return A copy of this session (same concrete type)
+	 */
+	public Session copy() {
+		return new Session(this);
+	}
+
 	/**
 	 * @return The username
 	 */
@@ -0,0 +1,131 @@
+package fr.trxyy.alternative.alternative_auth.base;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sortie console asynchrone du {@link Logger}.
+ *
+ * Les threads d'authentification déposent leurs messages dans un anneau de
+ * taille fixe (une réservation par CAS, sans verrou) ; un seul thread démon
+ * les formate, les masque ({@link Redactor}) et les écrit sur la console.
+ * Le verrou de {@code System.out} n'est donc plus pris que par ce thread.
+ *
+ * Anneau plein : le message est perdu plutôt que de bloquer l'appelant, et
+ * le nombre de messages perdus est signalé à la ligne suivante.
+ */
+final class AsyncLogAppender {
+
+    /** Message en attente : formaté par le thread d'écriture. */
+    static final class Record {
+        final Logger.Level level;
+        final String pattern;
+        final Object[] args;
+
+        Record(Logger.Level level, String pattern, Object[] args) {
+            this.level = level;
+            this.pattern = pattern;
+            this.args = args;
+        }
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final AtomicReferenceArray<Record> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    /**
+     * Prochain emplacement à lire ; écrit par le seul thread d'écriture, une
+     * fois le message précédent écrit.
+     */
+    private volatile long head;
+    private volatile boolean idle;
+    private final Thread writer;
+
+    /**
+     * @param capacity Taille de l'anneau, arrondie à la puissance de deux supérieure
+     */
+    AsyncLogAppender(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.writer = new Thread(this::drainLoop, "AAuth-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "AAuth-log-flush"));
+    }
+
+    /** @return false si l'anneau est plein (message perdu) */
+    boolean offer(Record record) {
+        long t;
+        do {
+            t = this.tail.get();
+            if (t - this.head > this.mask) {
+                this.dropped.incrementAndGet();
+                return false;
+            }
+        } while (!this.tail.compareAndSet(t, t + 1));
+        this.slots.set((int) (t & this.mask), record);
+        if (this.idle) LockSupport.unpark(this.writer);
+        return true;
+    }
+
+    /**
+     * Attend que les messages déjà déposés soient écrits (au plus une seconde).
+     */
+    void flush() {
+        long target = this.tail.get();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (this.head < target && System.nanoTime() < deadline) {
+            LockSupport.unpark(this.writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        flushStreams();
+    }
+
+    private void drainLoop() {
+        while (true) {
+            long h = this.head;
+            int index = (int) (h & this.mask);
+            Record record = this.slots.get(index);
+            if (record == null) {
+                if (h == this.tail.get()) {
+                    flushStreams();
+                    this.idle = true;
+                    if (h == this.tail.get()) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    this.idle = false;
+                } else {
+                    Thread.yield();     // emplacement réservé, message pas encore publié
+                }
+                continue;
+            }
+            this.slots.set(index, null);
+            try {
+                write(record);
+            } catch (RuntimeException e) {
+                // un toString() défaillant ne doit pas arrêter l'écriture des logs
+            } finally {
+                this.head = h + 1;      // après l'écriture : flush() attend ce message
+            }
+        }
+    }
+
+    private void write(Record record) {
+        long lost = this.dropped.getAndSet(0L);
+        PrintStream out = Logger.streamFor(record.level);
+        if (lost > 0) {
+            Logger.streamFor(Logger.Level.WARN).println(Logger.prefix(Logger.Level.WARN)
+                    + lost + " message(s) de log perdu(s) : file pleine");
+        }
+        out.println(Logger.prefix(record.level) + Logger.render(record.pattern, record.args));
+    }
+
+    private static void flushStreams() {
+        System.out.flush();
+        System.err.flush();
+    }
+}
@@ -0,0 +1,79 @@
+package fr.trxyy.alternative.alternative_auth.base;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.ResponseHandler;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+import fr.trxyy.alternative.alternative_auth.http.BoundedBody;
+import fr.trxyy.alternative.alternative_auth.http.HttpTransport;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.ModelTypeAdapters;
+
+/**
+ * Codec JSON partagé : deux instances Gson construites une seule fois
+ * (compacte pour le réseau, indentée pour les fichiers) avec les
+ * {@link ModelTypeAdapters} enregistrés.
+ */
+public class AuthCodec {
+
+    private static final Gson GSON = ModelTypeAdapters.register(new GsonBuilder()
+            .enableComplexMapKeySerialization())
+            .create();
+
+    private static final Gson PRETTY_GSON = ModelTypeAdapters.register(new GsonBuilder()
+            .enableComplexMapKeySerialization()
+            .setPrettyPrinting())
+            .create();
+
+    /** @return Le Gson compact partagé. */
+    public static Gson gson() {
+        return GSON;
+    }
+
+    /** @return Le Gson indenté partagé (fichiers de configuration). */
+    public static Gson prettyGson() {
+        return PRETTY_GSON;
+    }
+
+    /**
+     * Décode directement depuis le flux, sans passer par une String.
+     * @return L'objet décodé, ou {@code null} si le flux est vide
+     */
+    public static <T> T decode(InputStream in, Class<T> type) throws IOException {
+        if (in == null) return null;
+        TypeAdapter<T> adapter = GSON.getAdapter(type);
+        try (JsonReader reader = new JsonReader(new InputStreamReader(in, AuthConstants.UTF_8))) {
+            reader.setLenient(true);
+            try {
+                reader.peek();
+            } catch (EOFException empty) {
+                return null;
+            }
+            return adapter.read(reader);
+        } catch (IllegalStateException | JsonParseException e) {
+            throw new IOException("JSON invalide pour " + type.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Handler décodant le corps de la réponse en flux, quel que soit le statut,
+     * dans la limite de taille du transport par défaut.
+     */
+    public static <T> ResponseHandler<T> handler(Class<T> type) {
+        return response -> {
+            HttpEntity entity = response.getEntity();
+            if (entity == null) return null;
+            int max = HttpTransport.getDefault().getSettings().getMaxBodySize();
+            return decode(BoundedBody.open(entity, max), type);
+        };
+    }
+}
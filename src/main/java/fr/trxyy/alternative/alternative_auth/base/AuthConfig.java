@@ -1,15 +1,16 @@
 package fr.trxyy.alternative.alternative_auth.base;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.Map.Entry;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
-import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 
 import fr.trxyy.alternative.alternative_api.GameEngine;
+import fr.trxyy.alternative.alternative_auth.account.Session;
 import fr.trxyy.alternative.alternative_auth.microsoft.model.MicrosoftModel;
 
 
@@ -19,6 +20,15 @@ public class AuthConfig {
 	public MicrosoftModel microsoftModel;
 	public boolean read = false;
 
+	private ConfigFileStore store;
+	private File storeFile;
+	private long loadedVersion = -1L;
+
+	/**
+	 * System property overriding the storage directory
+	 */
+	public static final String STORAGE_ROOT_PROPERTY = "alternative.auth.storageRoot";
+
 	public AuthConfig() {}
 	
 	/**
@@ -26,119 +36,200 @@ public class AuthConfig {
 	 * @param engine The GameEngine instance
 	 */
 	public AuthConfig(GameEngine engine) {
+		this(new File(defaultDirectory(), "auth_infos.json"));
+	}
+
+	/**
+	 * The Constructor
+	 * @param file The config file (created on the first write)
+	 */
+	public AuthConfig(File file) {
+		this.authConfig = file;
+	}
+
+	/**
+	 * The storage directory : the {@value #STORAGE_ROOT_PROPERTY} property if set,
+	 * else $APPDATA/authconfig, else ~/.authconfig (APPDATA only exists on Windows)
+	 */
+	public static File defaultDirectory() {
+		String configured = System.getProperty(STORAGE_ROOT_PROPERTY);
+		if (configured != null && !configured.isEmpty()) {
+			return new File(configured);
+		}
 		String roamingPath = System.getenv("APPDATA");
-		File authConfigDirectory = new File(roamingPath, "authconfig");
-		if (!authConfigDirectory.exists()) {
-		    authConfigDirectory.mkdirs();
+		if (roamingPath != null && !roamingPath.isEmpty()) {
+			return new File(roamingPath, "authconfig");
 		}
-		this.authConfig = new File(authConfigDirectory, "auth_infos.json");
+		return new File(System.getProperty("user.home"), ".authconfig");
 	}
 	
 	public boolean canRefresh() {
-	    return this.authConfig.exists();
+	    return store().exists();
 	}
 	
 	/**
-	 * Update a value in the config json
+	 * Create (or replace) the config with the given tokens.
+	 * The write itself is atomic and done in the background, see {@link ConfigFileStore}.
 	 */
-	@SuppressWarnings("unchecked")
 	public void createConfigFile(MicrosoftModel model) {
-
-	    try {
-	        if (!this.authConfig.exists()) {
-	            this.authConfig.createNewFile();
-	        }
-
-	        JSONObject configDetails = new JSONObject();
-	        configDetails.put(EnumAuthConfig.ACCESS_TOKEN.getOption(), model.getAccess_token());
-	        configDetails.put(EnumAuthConfig.REFRESH_TOKEN.getOption(), model.getRefresh_token());
-	        configDetails.put(EnumAuthConfig.USER_ID.getOption(), model.getUser_id());
-	        configDetails.put(EnumAuthConfig.SCOPE.getOption(), model.getScope());
-	        configDetails.put(EnumAuthConfig.TOKEN_TYPE.getOption(), model.getToken_type());
-	        configDetails.put(EnumAuthConfig.EXPIRES_IN.getOption(), model.getExpires_in());
-	        configDetails.put(EnumAuthConfig.FOCI.getOption(), model.getFoci());
-
-	        try (FileWriter fw = new FileWriter(this.authConfig, false)) {
-	            JsonUtil.getGson().toJson(configDetails, fw);
-	        }
-	        Logger.log("createConfigFile() called");
-	        Logger.log("Auth config path = " + this.authConfig.getAbsolutePath());
-
-
-	    } catch (IOException e) {
-	        e.printStackTrace();
-	    }
+	    store().replace(toValues(model));
+	    this.microsoftModel = model;
+	    this.loadedVersion = this.store.version();
+	    this.read = true;
+	    Logger.debug("createConfigFile() : {}", this.authConfig.getAbsolutePath());
 	}
 	
 	/**
 	 * Get a specified value
 	 */
 	public Object getValue(EnumAuthConfig option) {
-		String configJson = JsonUtil.getGson().toJson(this.microsoftModel);
-		JSONObject jsonObject = (JSONObject) JSONValue.parse(configJson);
-		return jsonObject.get(option.getOption());
+		JsonObject values = store().snapshot();
+		JsonElement value = values == null ? null : values.get(option.getOption());
+		return value == null || value.isJsonNull() ? null : value.getAsString();
 	}
 	
 	/**
-	 * Load the configuration
+	 * Load the configuration (from memory once the file has been read)
 	 */
 	public void loadConfiguration() {
-		String json = null;
-		try {
-			json = JsonUtil.loadJSON(this.authConfig.toURI().toURL().toString());
+		ConfigFileStore store = store();
+		long version = store.version();
+		JsonObject values = store.snapshot();
+		if (values == null) {
+			Logger.err("ERROR !!! " + this.authConfig.getAbsolutePath() + " introuvable");
+			return;
+		}
+		if (!this.read || version != this.loadedVersion) {
+			this.microsoftModel = JsonUtil.getGson().fromJson(values, MicrosoftModel.class);
+			this.loadedVersion = version;
 			this.read = true;
-		} catch (IOException e) {
-			Logger.err("ERROR !!!");
-			e.printStackTrace();
-		} finally {
-			if (this.read) {
-				this.microsoftModel = JsonUtil.getGson().fromJson(json, MicrosoftModel.class);
-			}
 		}
 	}
 	
-	
 	/**
 	 * Update a value in the config json
 	 */
-	@SuppressWarnings("unchecked")
 	public void updateValue(String toUpdate, Object value) {
-		this.loadConfiguration();
-		String configJson = JsonUtil.getGson().toJson(this.microsoftModel);
-		JSONObject jsonObject = (JSONObject) JSONValue.parse(configJson);
-		jsonObject.put(toUpdate, value);
-		try {
-			FileWriter fileWriter = new FileWriter(this.authConfig);
-			JsonUtil.getGson().toJson(jsonObject, fileWriter);
-			fileWriter.flush();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		Map<String, Object> values = new HashMap<String, Object>();
+		values.put(toUpdate, value);
+		store().update(values);
 	}
 	
 	/**
 	 * Update multiple values in the config json
 	 */
-	@SuppressWarnings("unchecked")
 	public void updateValues(HashMap<String, String> values) {
-		this.loadConfiguration();
-		String configJson = JsonUtil.getGson().toJson(this.microsoftModel);
-		JSONObject jsonObject = (JSONObject) JSONValue.parse(configJson);
-		for (Entry<String, String> entry : values.entrySet()) {
-			jsonObject.put(entry.getKey(), entry.getValue());
+		store().update(values);
+	}
+
+	public void updateValues(MicrosoftModel model) {
+		store().update(toValues(model));
+		this.microsoftModel = model;
+		this.loadedVersion = this.store.version();
+		this.read = true;
+	}
+
+	/**
+	 * Save the Minecraft session next to the Microsoft tokens, with the expiry
+	 * read from its JWT. Nothing is saved if the token has no readable exp claim.
+	 * @return true if the session was saved
+	 */
+	public boolean saveMinecraftSession(Session session) {
+		long expiresAt = JwtUtil.expiresAt(session.getToken());
+		if (expiresAt <= 0L) {
+			return false;
+		}
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		values.put(EnumAuthConfig.MINECRAFT_TOKEN.getOption(), session.getToken());
+		values.put(EnumAuthConfig.MINECRAFT_EXPIRES_AT.getOption(), Long.toString(expiresAt / 1000L));
+		values.put(EnumAuthConfig.MINECRAFT_USERNAME.getOption(), session.getUsername());
+		values.put(EnumAuthConfig.MINECRAFT_UUID.getOption(), session.getUuid());
+		store().update(values);
+		return true;
+	}
+
+	/**
+	 * The saved Minecraft session if its token is still valid, checked locally
+	 * against the saved expiry (no network call, no signature check). The JWT
+	 * is only decoded when no expiry was saved.
+	 * @param margin The token is considered expired margin ms before its exp
+	 * @return The session, or null if none is saved or it expires within margin
+	 */
+	public Session getMinecraftSession(long margin) {
+		JsonObject values = store().snapshot();
+		if (values == null) {
+			return null;
+		}
+		String token = string(values, EnumAuthConfig.MINECRAFT_TOKEN);
+		String username = string(values, EnumAuthConfig.MINECRAFT_USERNAME);
+		String uuid = string(values, EnumAuthConfig.MINECRAFT_UUID);
+		if (token == null || username == null || uuid == null) {
+			return null;
+		}
+		long expiresAt = savedExpiry(values);
+		boolean valid = expiresAt > 0L
+				? System.currentTimeMillis() + margin < expiresAt
+				: JwtUtil.isValid(token, margin);
+		return valid ? new Session(username, token, uuid) : null;
+	}
+
+	/**
+	 * Forget the saved Minecraft session (e.g. rejected by the game servers).
+	 */
+	public void clearMinecraftSession() {
+		Map<String, String> values = new HashMap<String, String>();
+		values.put(EnumAuthConfig.MINECRAFT_TOKEN.getOption(), null);
+		values.put(EnumAuthConfig.MINECRAFT_EXPIRES_AT.getOption(), null);
+		values.put(EnumAuthConfig.MINECRAFT_USERNAME.getOption(), null);
+		values.put(EnumAuthConfig.MINECRAFT_UUID.getOption(), null);
+		store().update(values);
+	}
+
+	/**
+	 * Write pending changes to disk now (blocks until fsync).
+	 */
+	public void flush() throws IOException {
+		store().flush();
+	}
+
+	/**
+	 * @return true if a change is not on disk yet (does not block)
+	 */
+	public boolean hasPendingWrites() {
+		return store().hasPendingWrites();
+	}
+
+	private ConfigFileStore store() {
+		if (this.store == null || !this.authConfig.equals(this.storeFile)) {
+			this.store = ConfigFileStore.forFile(this.authConfig);
+			this.storeFile = this.authConfig;
+			this.loadedVersion = -1L;
+		}
+		return this.store;
+	}
+
+	/**
+	 * @return The saved Minecraft token expiry in ms, or 0 if missing or unreadable
+	 */
+	private static long savedExpiry(JsonObject values) {
+		String seconds = string(values, EnumAuthConfig.MINECRAFT_EXPIRES_AT);
+		if (seconds == null) {
+			return 0L;
 		}
-		
 		try {
-			FileWriter fileWriter = new FileWriter(this.authConfig);
-			JsonUtil.getGson().toJson(jsonObject, fileWriter);
-			fileWriter.flush();
-		} catch (IOException e) {
-			e.printStackTrace();
+			return Long.parseLong(seconds) * 1000L;
+		} catch (NumberFormatException e) {
+			return 0L;
 		}
 	}
 
-	public void updateValues(MicrosoftModel model) {
-		HashMap<String, String> values = new HashMap<String, String>();
+	private static String string(JsonObject values, EnumAuthConfig option) {
+		JsonElement value = values.get(option.getOption());
+		return value == null || value.isJsonNull() ? null : value.getAsString();
+	}
+
+	private static Map<String, String> toValues(MicrosoftModel model) {
+		Map<String, String> values = new LinkedHashMap<String, String>();
 		values.put(EnumAuthConfig.ACCESS_TOKEN.getOption(), model.getAccess_token());
 		values.put(EnumAuthConfig.REFRESH_TOKEN.getOption(), model.getRefresh_token());
 		values.put(EnumAuthConfig.USER_ID.getOption(), model.getUser_id());
@@ -146,6 +237,7 @@ public class AuthConfig {
 		values.put(EnumAuthConfig.TOKEN_TYPE.getOption(), model.getToken_type());
 		values.put(EnumAuthConfig.EXPIRES_IN.getOption(), model.getExpires_in());
 		values.put(EnumAuthConfig.FOCI.getOption(), model.getFoci());
-		this.updateValues(values);
+		values.put(EnumAuthConfig.OBTAINED_AT.getOption(), model.getObtained_at());
+		return values;
 	}
 }
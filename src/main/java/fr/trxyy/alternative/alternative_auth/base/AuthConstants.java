@@ -3,7 +3,6 @@ package fr.trxyy.alternative.alternative_auth.base;
 import java.nio.charset.Charset;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
 /**
  * Ensemble des constantes utilisées par le module d'authentification.
@@ -15,6 +14,9 @@ import com.google.gson.GsonBuilder;
  */
 public class AuthConstants {
 
+    // Les URLs ci-dessous sont les valeurs officielles par défaut ; la librairie
+    // passe par AuthEndpoints, qui permet de les remplacer à l'exécution.
+
     // ─────────────────────────────────────────────────────────────────────────────
     //  Mojang
     // ─────────────────────────────────────────────────────────────────────────────
@@ -72,12 +74,9 @@ public class AuthConstants {
     //  Gson helper
     // ─────────────────────────────────────────────────────────────────────────────
 
-    /** @return Un objet Gson configuré. */
+    /** @return Le Gson partagé (voir {@link AuthCodec}), construit une seule fois. */
     public static Gson getGson() {
-        return new GsonBuilder()
-                .enableComplexMapKeySerialization()
-                .setPrettyPrinting()
-                .create();
+        return AuthCodec.gson();
     }
 
     // ─────────────────────────────────────────────────────────────────────────────
@@ -0,0 +1,110 @@
+package fr.trxyy.alternative.alternative_auth.base;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * URLs des endpoints distants, modifiables à l'exécution.
+ *
+ * Par défaut ce sont les URLs officielles. Elles peuvent être surchargées :
+ *   • pour toute la JVM, par propriétés système lues au chargement
+ *     ({@code -Dalternative.auth.baseUrl=http://127.0.0.1:8089} redirige tous
+ *     les endpoints vers un même hôte en gardant leurs chemins,
+ *     {@code -Dalternative.auth.endpoint.xsts_authorize=...} un seul endpoint) ;
+ *   • par code, via {@link #set(Endpoint, String)} et {@link #setBaseUrl(String)}.
+ */
+public final class AuthEndpoints {
+
+    public static final String BASE_URL_PROPERTY = "alternative.auth.baseUrl";
+    public static final String ENDPOINT_PROPERTY_PREFIX = "alternative.auth.endpoint.";
+
+    public enum Endpoint {
+        /** Microsoft Identity Platform v2 */
+        DEVICE_CODE("https://login.microsoftonline.com/consumers/oauth2/v2.0/devicecode"),
+        AUTHORIZE(AuthConstants.MICROSOFT_BASE_URL),
+        TOKEN(AuthConstants.MICROSOFT_AUTH_TOKEN),
+
+        /** Live ID v1 */
+        LIVE_AUTHORIZE("https://login.live.com/oauth20_authorize.srf"),
+        LIVE_TOKEN("https://login.live.com/oauth20_token.srf"),
+
+        /** Xbox / Minecraft */
+        XBL_AUTHENTICATE(AuthConstants.MICROSOFT_AUTHENTICATE_XBOX),
+        XSTS_AUTHORIZE(AuthConstants.MICROSOFT_AUTHORIZE_XSTS),
+        LOGIN_WITH_XBOX(AuthConstants.MICROSOFT_LOGIN_XBOX),
+        MINECRAFT_STORE(AuthConstants.MICROSOFT_MINECRAFT_STORE),
+        MINECRAFT_PROFILE(AuthConstants.MICROSOFT_MINECRAFT_PROFILE),
+
+        /** Mojang (historique) */
+        MOJANG_AUTHENTICATE(AuthConstants.MOJANG_BASE_URL);
+
+        private final String defaultUrl;
+
+        Endpoint(String defaultUrl) {
+            this.defaultUrl = defaultUrl;
+        }
+
+        public String getDefaultUrl() {
+            return this.defaultUrl;
+        }
+
+        /** @return Le chemin de l'URL officielle, conservé par {@link AuthEndpoints#setBaseUrl(String)} */
+        public String getPath() {
+            return URI.create(this.defaultUrl).getRawPath();
+        }
+
+        public String getPropertyName() {
+            return ENDPOINT_PROPERTY_PREFIX + name().toLowerCase();
+        }
+    }
+
+    private static final Endpoint[] ENDPOINTS = Endpoint.values();
+    private static final AtomicReferenceArray<String> URLS = new AtomicReferenceArray<>(ENDPOINTS.length);
+
+    static {
+        reset();
+    }
+
+    /** @return L'URL actuellement utilisée pour cet endpoint. */
+    public static String get(Endpoint endpoint) {
+        return URLS.get(endpoint.ordinal());
+    }
+
+    /**
+     * Remplace l'URL d'un endpoint.
+     * @param url Nouvelle URL complète, ou {@code null} pour revenir à l'officielle
+     */
+    public static void set(Endpoint endpoint, String url) {
+        URLS.set(endpoint.ordinal(), url == null ? endpoint.getDefaultUrl() : url);
+    }
+
+    /**
+     * Redirige tous les endpoints vers un même hôte en conservant leurs chemins
+     * (ex. serveur local {@code StandInAuthServer}).
+     * @param baseUrl ex. {@code http://127.0.0.1:8089}, ou {@code null} pour les URLs officielles
+     */
+    public static void setBaseUrl(String baseUrl) {
+        for (Endpoint e : ENDPOINTS) {
+            set(e, baseUrl == null ? null : rebase(baseUrl, e));
+        }
+    }
+
+    /** Revient aux URLs officielles, puis applique les propriétés système. */
+    public static void reset() {
+        String base = System.getProperty(BASE_URL_PROPERTY);
+        setBaseUrl(base == null || base.isEmpty() ? null : base);
+        for (Endpoint e : ENDPOINTS) {
+            String override = System.getProperty(e.getPropertyName());
+            if (override != null && !override.isEmpty()) {
+                set(e, override);
+            }
+        }
+    }
+
+    private static String rebase(String baseUrl, Endpoint endpoint) {
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        return base + endpoint.getPath();
+    }
+
+    private AuthEndpoints() {}
+}
@@ -0,0 +1,306 @@
+package fr.trxyy.alternative.alternative_auth.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+
+import fr.trxyy.alternative.alternative_auth.metrics.Hop;
+import fr.trxyy.alternative.alternative_auth.metrics.HopTimer;
+
+/**
+ * Persistance d'un fichier de configuration JSON.
+ *
+ *   • une copie mémoire fait foi : les lectures ne touchent jamais le disque
+ *     (le fichier n'est lu qu'une fois, au premier accès) ;
+ *   • les mises à jour rapprochées sont regroupées en une seule écriture,
+ *     faite par un thread dédié {@link #COALESCE_DELAY_MS} ms plus tard ;
+ *   • chaque écriture est atomique : fichier temporaire, fsync, puis rename.
+ *     Un crash en pleine écriture laisse l'ancien fichier intact.
+ *
+ * Une seule instance par fichier ({@link #forFile(File)}), partagée par tous
+ * les {@link AuthConfig} qui pointent dessus. Le registre ne la retient que
+ * faiblement : un store que plus personne n'utilise et dont l'écriture est
+ * terminée est libéré (la tâche d'écriture planifiée retient les autres).
+ * Les écritures en attente sont faites à l'arrêt de la JVM.
+ */
+public final class ConfigFileStore {
+
+    public static final long COALESCE_DELAY_MS = 25L;
+    private static final long RETRY_DELAY_MS = 1000L;
+
+    private static final ConcurrentHashMap<Path, StoreRef> STORES = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<ConfigFileStore> RELEASED = new ReferenceQueue<>();
+
+    private static final ScheduledThreadPoolExecutor WRITER = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "AAuth-config-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ConfigFileStore::flushAll, "AAuth-config-flush"));
+    }
+
+    private final Path path;
+    private final Object lock = new Object();
+    private final Object writeLock = new Object();
+
+    /** Dernier état publié ; jamais modifié après publication (copie à chaque mise à jour). */
+    private volatile JsonObject snapshot;
+    private volatile long version;          // modifié sous lock
+    private volatile long writtenVersion;   // modifié sous writeLock
+    private boolean scheduled;      // protégé par lock
+
+    private ConfigFileStore(Path path) {
+        this.path = path;
+    }
+
+    /** @return Le store du fichier (même instance pour un même chemin). */
+    public static ConfigFileStore forFile(File file) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        expungeReleased();
+        while (true) {
+            StoreRef ref = STORES.get(path);
+            ConfigFileStore store = ref == null ? null : ref.get();
+            if (store != null) return store;
+            ConfigFileStore created = new ConfigFileStore(path);
+            StoreRef fresh = new StoreRef(created);
+            if (ref == null ? STORES.putIfAbsent(path, fresh) == null : STORES.replace(path, ref, fresh)) {
+                return created;
+            }
+        }
+    }
+
+    /** Écrit immédiatement les modifications en attente de tous les fichiers. */
+    public static void flushAll() {
+        for (StoreRef ref : STORES.values()) {
+            ConfigFileStore store = ref.get();
+            if (store == null) continue;
+            try {
+                store.flush();
+            } catch (IOException e) {
+                Logger.error("Écriture de {} impossible : {}", store.path, e.getMessage());
+            }
+        }
+    }
+
+    public File getFile() {
+        return this.path.toFile();
+    }
+
+    /** @return true si une modification n'est pas encore sur disque (ne bloque pas) */
+    public boolean hasPendingWrites() {
+        return this.version > this.writtenVersion;
+    }
+
+    /*──────────────────── Lecture ────────────────────*/
+
+    /**
+     * @return L'état courant (à ne pas modifier), ou {@code null} si le fichier
+     *         n'existe pas et que rien n'a encore été écrit
+     */
+    public JsonObject snapshot() {
+        JsonObject s = this.snapshot;
+        if (s != null) return s;
+        synchronized (this.lock) {
+            if (this.snapshot == null && Files.exists(this.path)) {
+                this.snapshot = readFile();
+            }
+            return this.snapshot;
+        }
+    }
+
+    /** @return Un numéro qui change à chaque mise à jour (permet de garder un décodage en cache). */
+    public long version() {
+        synchronized (this.lock) {
+            return this.version;
+        }
+    }
+
+    public boolean exists() {
+        return snapshot() != null;
+    }
+
+    /*──────────────────── Écriture ────────────────────*/
+
+    /** Remplace tout le contenu. */
+    public void replace(Map<String, ?> values) {
+        apply(values, true);
+    }
+
+    /** Met à jour (ou ajoute) les clés données ; une valeur {@code null} retire la clé. */
+    public void update(Map<String, ?> values) {
+        apply(values, false);
+    }
+
+    /**
+     * Écrit tout de suite l'état courant s'il n'est pas déjà sur disque.
+     * Bloque jusqu'à la fin du fsync.
+     */
+    public void flush() throws IOException {
+        synchronized (this.writeLock) {
+            JsonObject state;
+            long target;
+            synchronized (this.lock) {
+                state = this.snapshot;
+                target = this.version;
+            }
+            if (state == null || target <= this.writtenVersion) return;
+            HopTimer timer = HopTimer.start(Hop.CONFIG_IO);
+            try {
+                writeAtomically(state);
+            } catch (IOException e) {
+                timer.failed(e);
+                throw e;
+            } finally {
+                timer.stop();
+            }
+            this.writtenVersion = target;
+        }
+    }
+
+    /**
+     * Supprime le fichier ; les écritures en attente sont abandonnées.
+     */
+    public void delete() throws IOException {
+        synchronized (this.writeLock) {
+            long target;
+            synchronized (this.lock) {
+                this.snapshot = null;
+                target = ++this.version;
+            }
+            Files.deleteIfExists(this.path);
+            this.writtenVersion = target;
+        }
+    }
+
+    private void apply(Map<String, ?> values, boolean replace) {
+        synchronized (this.lock) {
+            JsonObject current = replace ? null : snapshot();
+            JsonObject next = current == null ? new JsonObject() : current.deepCopy();
+            for (Map.Entry<String, ?> e : values.entrySet()) {
+                if (e.getValue() == null) {
+                    next.remove(e.getKey());
+                } else {
+                    next.add(e.getKey(), toJson(e.getValue()));
+                }
+            }
+            this.snapshot = next;
+            this.version++;
+            if (!this.scheduled) {
+                this.scheduled = true;
+                WRITER.schedule(this::backgroundFlush, COALESCE_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void backgroundFlush() {
+        synchronized (this.lock) {
+            this.scheduled = false;     // une mise à jour arrivée pendant l'écriture replanifiera
+        }
+        try {
+            flush();
+        } catch (IOException e) {
+            Logger.warn("Écriture de {} impossible, nouvel essai : {}", this.path, e.getMessage());
+            synchronized (this.lock) {
+                if (!this.scheduled) {
+                    this.scheduled = true;
+                    WRITER.schedule(this::backgroundFlush, RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    private void writeAtomically(JsonObject state) throws IOException {
+        byte[] bytes = JsonUtil.getGson().toJson(state).getBytes(AuthConstants.UTF_8);
+        Path directory = this.path.getParent();
+        if (directory != null) Files.createDirectories(directory);
+
+        Path tmp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(tmp, this.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, this.path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(directory);
+    }
+
+    /** fsync du dossier pour rendre le rename durable (sans effet sous Windows). */
+    private static void syncDirectory(Path directory) {
+        if (directory == null) return;
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException | UnsupportedOperationException ignored) {
+            // non supporté par le système de fichiers
+        }
+    }
+
+    private JsonObject readFile() {
+        HopTimer timer = HopTimer.start(Hop.CONFIG_IO);
+        try (Reader reader = Files.newBufferedReader(this.path, AuthConstants.UTF_8)) {
+            JsonObject loaded = AuthCodec.gson().fromJson(reader, JsonObject.class);
+            return loaded == null ? new JsonObject() : loaded;
+        } catch (IOException | JsonParseException e) {
+            timer.failed(e);
+            Logger.error("Lecture de {} impossible : {}", this.path, e.getMessage());
+            return null;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /** Retire du registre les stores libérés par le GC. */
+    private static void expungeReleased() {
+        Reference<? extends ConfigFileStore> released;
+        while ((released = RELEASED.poll()) != null) {
+            StoreRef ref = (StoreRef) released;
+            STORES.remove(ref.path, ref);
+        }
+    }
+
+    private static final class StoreRef extends WeakReference<ConfigFileStore> {
+        final Path path;
+
+        StoreRef(ConfigFileStore store) {
+            super(store, RELEASED);
+            this.path = store.path;
+        }
+    }
+
+    private static JsonElement toJson(Object value) {
+        if (value instanceof JsonElement) return (JsonElement) value;
+        if (value instanceof String) return new JsonPrimitive((String) value);
+        if (value instanceof Number) return new JsonPrimitive((Number) value);
+        if (value instanceof Boolean) return new JsonPrimitive((Boolean) value);
+        JsonElement tree = AuthCodec.gson().toJsonTree(value);
+        return tree == null ? JsonNull.INSTANCE : tree;
+    }
+}
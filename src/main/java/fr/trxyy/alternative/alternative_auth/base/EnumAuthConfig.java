@@ -8,7 +8,12 @@ public enum EnumAuthConfig {
 	SCOPE("scope"),
 	TOKEN_TYPE("token_type"),
 	EXPIRES_IN("expires_in"),
-	FOCI("foci");
+	FOCI("foci"),
+	OBTAINED_AT("obtained_at"),
+	MINECRAFT_TOKEN("minecraft_token"),
+	MINECRAFT_EXPIRES_AT("minecraft_expires_at"),
+	MINECRAFT_USERNAME("minecraft_username"),
+	MINECRAFT_UUID("minecraft_uuid");
 	
 	public String option;
 	public Object def;
@@ -0,0 +1,129 @@
+package fr.trxyy.alternative.alternative_auth.base;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Petits outils autour de {@link CompletableFuture} pour l'API asynchrone.
+ */
+public class Futures {
+
+    private static final int WORKERS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    /** Pool par défaut quand l'appelant ne fournit pas d'Executor. */
+    private static final ThreadPoolExecutor DEFAULT_EXECUTOR;
+
+    static {
+        AtomicInteger counter = new AtomicInteger();
+        DEFAULT_EXECUTOR = new ThreadPoolExecutor(WORKERS, WORKERS, 30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "AAuth-worker-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        DEFAULT_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Appels annexes lancés en parallèle pour un appelant bloquant (ex. mcstore
+     * pendant le profil). Dimensionné comme le pool de connexions par hôte
+     * ({@code TransportSettings#getMaxPerRoute()}) et sans file d'attente :
+     * saturé, l'appel s'exécute dans le thread appelant (séquentiel, comme
+     * avant) au lieu d'attendre derrière les autres.
+     */
+    private static final int PARALLEL_WORKERS = 32;
+    private static final ThreadPoolExecutor PARALLEL_EXECUTOR;
+
+    static {
+        AtomicInteger counter = new AtomicInteger();
+        PARALLEL_EXECUTOR = new ThreadPoolExecutor(0, PARALLEL_WORKERS, 30L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "AAuth-parallel-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /** Exécute la tâche dans le thread appelant (API synchrone). */
+    private static final Executor CALLER_RUNS = Runnable::run;
+
+    /** @return L'Executor partagé de la librairie (threads démons, borné). */
+    public static Executor defaultExecutor() {
+        return DEFAULT_EXECUTOR;
+    }
+
+    /** @return L'Executor qui exécute dans le thread appelant, utilisé par les méthodes bloquantes. */
+    public static Executor callerRuns() {
+        return CALLER_RUNS;
+    }
+
+    /**
+     * Executor pour lancer des appels en parallèle : celui de l'appelant, sauf
+     * s'il s'agit de {@link #callerRuns()} (tout serait alors séquentiel) ; on
+     * prend alors un pool dédié plutôt que le petit pool par défaut, que
+     * plusieurs dizaines d'appelants bloquants satureraient.
+     */
+    public static Executor forParallel(Executor executor) {
+        return executor == CALLER_RUNS ? PARALLEL_EXECUTOR : executor;
+    }
+
+    /**
+     * Équivalent de {@link CompletableFuture#supplyAsync} acceptant une tâche
+     * qui lève des exceptions vérifiées.
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> task, Executor executor) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (Throwable rejected) {
+            future.completeExceptionally(rejected);
+        }
+        return future;
+    }
+
+    /** @return Un future déjà en échec. */
+    public static <T> CompletableFuture<T> failed(Throwable t) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(t);
+        return future;
+    }
+
+    /** Retire les enveloppes {@link CompletionException}/{@link ExecutionException}. */
+    public static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    /**
+     * Attend le résultat en relançant l'exception d'origine.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+}
@@ -2,42 +2,38 @@ package fr.trxyy.alternative.alternative_auth.base;
 
 import fr.trxyy.alternative.alternative_api.GameEngine;
 import fr.trxyy.alternative.alternative_auth.account.AccountType;
+import fr.trxyy.alternative.alternative_auth.account.OfflineSessionFactory;
 import fr.trxyy.alternative.alternative_auth.account.Session;
-import fr.trxyy.alternative.alternative_auth.microsoft.MicrosoftXboxAuth;
-import fr.trxyy.alternative.alternative_auth.microsoft.MicrosoftOAuthClient;
+import fr.trxyy.alternative.alternative_auth.base.AuthEndpoints.Endpoint;
+import fr.trxyy.alternative.alternative_auth.fx.MicrosoftLoginDialog;
+import fr.trxyy.alternative.alternative_auth.http.HttpTransport;
+import fr.trxyy.alternative.alternative_auth.microsoft.MicrosoftLoginService;
 import fr.trxyy.alternative.alternative_auth.microsoft.MicrosoftOAuthClient.DeviceCode;
-import fr.trxyy.alternative.alternative_auth.microsoft.model.MicrosoftModel;
+import fr.trxyy.alternative.alternative_auth.microsoft.TokenRefreshScheduler;
 import fr.trxyy.alternative.alternative_auth.mojang.model.MojangAuthResult;
-import javafx.application.Platform;
-import javafx.geometry.Insets;
-import javafx.scene.Scene;
-import javafx.scene.control.ProgressIndicator;
-import javafx.scene.layout.StackPane;
 import javafx.scene.layout.Pane;
-import javafx.stage.Modality;
-import javafx.stage.Stage;
-import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 
-import java.awt.*;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.URI;
-import java.util.UUID;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 /**
  * GameAuth
  */
 public class GameAuth {
 
-    private boolean isAuthenticated = false;
-    private Session session = new Session();
+    /*
+     * Écrits par les threads de la chaîne asynchrone, lus par le launcher :
+     * chaque connexion publie une nouvelle Session, puis isAuthenticated.
+     */
+    private volatile boolean isAuthenticated = false;
+    private volatile Session session = new Session();
 
-    private AuthConfig authConfig;
+    private TokenRefreshScheduler refreshScheduler;
 
     /*──────────────────────────  Constructeurs  ──────────────────────────*/
 
@@ -46,7 +42,8 @@ public class GameAuth {
         if (type == AccountType.MOJANG) {
             connectMinecraft(user, pwd);
         } else if (type == AccountType.OFFLINE) {
-            setSession(user, TokenGenerator.generateToken(user), UUID.randomUUID().toString().replace("-", ""));
+            // UUID vanilla "OfflinePlayer:<pseudo>" : le même à chaque lancement
+            setSession(user, TokenGenerator.generateToken(user), OfflineSessionFactory.uuidString(user));
         }
     }
 
@@ -54,96 +51,97 @@ public class GameAuth {
         AuthConstants.displayCopyrights();
     }
 
+    /*──────────────────────  Préconnexion  ──────────────────────*/
+
+    /**
+     * À appeler dès l’ouverture du launcher : ouvre en parallèle les connexions
+     * vers tous les hôtes de la connexion Microsoft (Microsoft, Xbox, XSTS,
+     * Minecraft). Au clic sur « Connexion », aucun handshake ne reste à faire.
+     * @return Le nombre de connexions ouvertes
+     */
+    public static CompletableFuture<Integer> warmUp() {
+        return HttpTransport.getDefault().warmUp(Arrays.asList(
+                AuthEndpoints.get(Endpoint.DEVICE_CODE),
+                AuthEndpoints.get(Endpoint.XBL_AUTHENTICATE),
+                AuthEndpoints.get(Endpoint.XSTS_AUTHORIZE),
+                // profil et droits sont demandés en parallèle : deux connexions
+                AuthEndpoints.get(Endpoint.MINECRAFT_PROFILE),
+                AuthEndpoints.get(Endpoint.MINECRAFT_STORE)), Futures.defaultExecutor());
+    }
+
     /*──────────────────────  Auth Microsoft  ──────────────────────*/
 
+    /**
+     * Connexion Microsoft avec la fenêtre d'attente JavaFX.
+     * Sans écran, utiliser {@link MicrosoftLoginService} directement.
+     */
     public void connectMicrosoft(GameEngine engine, Pane root) {
-        this.authConfig = new AuthConfig(engine);
-
-        ProgressIndicator spinner = new ProgressIndicator();
-        spinner.setPrefSize(80, 80);
-        StackPane content = new StackPane(spinner);
-        content.setPadding(new Insets(20));
-
-        Stage dlg = new Stage();
-        dlg.setScene(new Scene(content, 300, 160));
-        dlg.setTitle("Connexion Microsoft");
-        dlg.initModality(Modality.APPLICATION_MODAL);
-        dlg.setResizable(false);
-        dlg.show();
-
-        new Thread(() -> {
-            try {
-                /* ===================== SILENT LOGIN ===================== */
-                if (trySilentRefresh(engine)) {
-                    Platform.runLater(() -> dlg.close());
-                    return;
-                }
-
-                /* ===================== DEVICE FLOW ===================== */
-                MicrosoftOAuthClient deviceAuth = new MicrosoftOAuthClient();
-
-                // 1️⃣ Récupération du device code
-                DeviceCode deviceCode = deviceAuth.requestDeviceCode();
-
-                // 2️⃣ Ouvre la page Microsoft officielle
-                Desktop.getDesktop().browse(
-                        URI.create(deviceCode.getVerificationUri())
-                );
-
-                // 3️⃣ Affiche le code à l’utilisateur (UI à toi)
-                Platform.runLater(() -> {
-                    Logger.log("Code Microsoft : " + deviceCode.getUserCode());
-                    // 👉 idéalement : popup / label visible
-                });
-
-                // 4️⃣ Polling jusqu’à validation
-                MicrosoftModel model = deviceAuth.pollForToken(deviceCode);
-
-                // 5️⃣ Sauvegarde tokens
-                authConfig.createConfigFile(model);
-
-                // 6️⃣ Chaîne Xbox → XSTS → Minecraft
-                Session res = new MicrosoftXboxAuth().getLiveToken(model.getAccess_token());
-
-                Platform.runLater(() -> success(res, dlg));
-
-            } catch (Exception e) {
-                e.printStackTrace();
-                Platform.runLater(() -> error(dlg));
+        MicrosoftLoginDialog dlg = MicrosoftLoginDialog.open();
+        connectMicrosoftAsync(engine, Futures.defaultExecutor(), dlg::showCode).whenComplete((res, error) -> {
+            if (error != null) {
+                Futures.unwrap(error).printStackTrace();
+                this.isAuthenticated = false;
             }
-        }).start();
+            // en cas de succès, la session a déjà été appliquée par la chaîne asynchrone
+            dlg.close();
+        });
+    }
+
+    /**
+     * Connexion Microsoft sans blocage : refresh silencieux si possible,
+     * sinon device flow. Chaque hop est une étape exécutée sur {@code executor}.
+     * @param codeHandler Reçoit le device code à présenter à l’utilisateur
+     */
+    public CompletableFuture<Session> connectMicrosoftAsync(GameEngine engine, Executor executor,
+            Consumer<DeviceCode> codeHandler) {
+        return service(engine).loginAsync(executor, codeHandler).thenApply(this::applySession);
+    }
+
+    /**
+     * Refresh silencieux asynchrone à partir du refresh_token enregistré.
+     * Échoue si aucun compte n’est enregistré ou si Microsoft refuse le token.
+     */
+    public CompletableFuture<Session> refreshMicrosoftAsync(GameEngine engine, Executor executor) {
+        return service(engine).refreshAsync(executor).thenApply(this::applySession);
+    }
+
+    /**
+     * Active le refresh proactif : après chaque connexion réussie, le compte est
+     * confié au scheduler, qui persiste lui-même les tokens renouvelés.
+     */
+    public void enableBackgroundRefresh(TokenRefreshScheduler scheduler) {
+        this.refreshScheduler = scheduler;
     }
 
-    private void success(Session session, Stage dlg) {
-        setSession(session.getUsername(), session.getToken(), session.getUuid());
-        dlg.close();
+    private MicrosoftLoginService service(GameEngine engine) {
+        MicrosoftLoginService service = new MicrosoftLoginService(new AuthConfig(engine));
+        service.enableBackgroundRefresh(this.refreshScheduler);
+        return service;
     }
 
-    private void error(Stage dlg) {
-        this.isAuthenticated = false;
-        dlg.close();
+    private Session applySession(Session s) {
+        setSession(s);
+        return s;
     }
 
     /*──────────────────  Auth Mojang (inchangée)  ──────────────────*/
 
     public void connectMinecraft(String username, String password) {
-        try (CloseableHttpClient httpClient = HttpClientBuilder.create().build()) {
-            HttpPost httpPost = new HttpPost(AuthConstants.MOJANG_BASE_URL);
+        try {
+            HttpPost httpPost = new HttpPost(AuthEndpoints.get(AuthEndpoints.Endpoint.MOJANG_AUTHENTICATE));
             StringEntity parameters = new StringEntity(
                     "{\"agent\":{\"name\":\"Minecraft\",\"version\":1},\"username\":\"" + username + "\",\"password\":\"" + password + "\"}",
                     ContentType.create(AuthConstants.APP_JSON));
             httpPost.addHeader("content-type", AuthConstants.APP_JSON);
             httpPost.setEntity(parameters);
-            try (CloseableHttpResponse resp = httpClient.execute(httpPost)) {
-                BufferedReader br = new BufferedReader(new InputStreamReader(resp.getEntity().getContent()));
-                String json = br.readLine();
-                if (!json.contains("\"name\"")) {
-                    this.isAuthenticated = false;
-                    return;
-                }
-                MojangAuthResult result = AuthConstants.getGson().fromJson(json, MojangAuthResult.class);
-                setSession(result.getSelectedProfile().getName(), result.getAccessToken(), result.getSelectedProfile().getId());
+            HttpTransport transport = HttpTransport.getDefault();
+            String json = transport.execute(httpPost, transport::bodyAsString);
+            if (!json.contains("\"name\"")) {
+                this.isAuthenticated = false;
+                return;
             }
+            MojangAuthResult result = AuthConstants.getGson().fromJson(json, MojangAuthResult.class);
+            setSession(result.getSelectedProfile().getName(), result.getAccessToken(), result.getSelectedProfile().getId());
         } catch (Exception ex) {
             ex.printStackTrace();
         }
@@ -152,9 +150,7 @@ public class GameAuth {
     /*──────────────────  Setters / Getters  ──────────────────*/
 
     private void setSession(String user, String token, String id) {
-        this.session.setUsername(user);
-        this.session.setToken(token);
-        this.session.setUuid(id);
+        this.session = new Session(user, token, id);
         this.isAuthenticated = true;
         Logger.log("Connected successfully as " + user);
     }
@@ -172,35 +168,23 @@ public class GameAuth {
     }
 
     /* ------------------------------------------------------------------
-     *  Tentative silencieuse : si un refresh_token est présent et valide
-     *  → on met à jour la Session et on renvoie true.
+     *  Tentative silencieuse : si la session Minecraft enregistrée est
+     *  encore valide (exp du JWT, aucun appel réseau) ou si un refresh_token
+     *  est présent et valide → on met à jour la Session et on renvoie true.
      *  Sinon renvoie false et ne modifie rien.
      * ------------------------------------------------------------------ */
     public boolean trySilentRefresh(GameEngine engine) {
         try {
-            this.authConfig = new AuthConfig(engine);
-            if (!authConfig.canRefresh()) return false;
-
-            authConfig.loadConfiguration();
-
-            MicrosoftOAuthClient deviceAuth = new MicrosoftOAuthClient();
+            MicrosoftLoginService service = service(engine);
+            if (!service.hasAccount()) return false;
 
-            // 🔁 Device Flow refresh
-            MicrosoftModel m = deviceAuth.refreshWithToken(
-                    authConfig.microsoftModel.getRefresh_token()
-            );
-
-            authConfig.updateValues(m);
-
-            Session s = new MicrosoftXboxAuth().getLiveToken(m.getAccess_token());
-            setSession(s);
+            applySession(service.refresh());
             return true;
 
         } catch (Exception ex) {
-            Logger.log("Silent refresh failed : " + ex.getMessage());
+            Logger.info("Silent refresh failed : {}", ex.getMessage());
             return false;
         }
     }
 
-
 }
@@ -6,7 +6,6 @@ import java.io.InputStreamReader;
 import java.net.URL;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
 /**
  * @author Trxyy
@@ -14,13 +13,10 @@ import com.google.gson.GsonBuilder;
 public class JsonUtil {
 
 	/**
-	 * @return A good Gson to read Minecraft version json
+	 * @return A good Gson to read Minecraft version json (shared instance)
 	 */
 	public static Gson getGson() {
-		final GsonBuilder gsonBuilder = new GsonBuilder();
-		gsonBuilder.enableComplexMapKeySerialization();
-		gsonBuilder.setPrettyPrinting();
-		return gsonBuilder.create();
+		return AuthCodec.prettyGson();
 	}
 
 	/**
@@ -30,13 +26,14 @@ public class JsonUtil {
 	 */
 	public static String loadJSON(String inUrl) throws IOException {
 		URL url = new URL(inUrl);
-		BufferedReader in = new BufferedReader(new InputStreamReader(url.openStream()));
-		String json = new String();
-		String inputLine;
-		while ((inputLine = in.readLine()) != null) {
-			json = json + inputLine;
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(url.openStream(), AuthConstants.UTF_8))) {
+			StringBuilder json = new StringBuilder();
+			String inputLine;
+			while ((inputLine = in.readLine()) != null) {
+				json.append(inputLine);
+			}
+			return json.toString();
 		}
-		return json;
 	}
 
 }
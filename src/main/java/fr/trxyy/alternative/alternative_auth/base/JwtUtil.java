@@ -0,0 +1,58 @@
+package fr.trxyy.alternative.alternative_auth.base;
+
+import java.util.Base64;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Lecture locale des claims d'un JWT (access token Minecraft).
+ *
+ * La signature n'est pas vérifiée : le token vient de nos propres fichiers,
+ * on veut seulement savoir, sans appel réseau, s'il est encore utilisable.
+ * Les serveurs Minecraft restent seuls juges de sa validité.
+ */
+public final class JwtUtil {
+
+    /**
+     * @return L'échéance ({@code exp}) du token en epoch millis, ou 0 si le token
+     *         n'est pas un JWT lisible ou n'a pas de claim {@code exp}
+     */
+    public static long expiresAt(String token) {
+        JsonObject claims = claims(token);
+        JsonElement exp = claims == null ? null : claims.get("exp");
+        if (exp == null || !exp.isJsonPrimitive() || !exp.getAsJsonPrimitive().isNumber()) {
+            return 0L;
+        }
+        return exp.getAsLong() * 1000L;
+    }
+
+    /**
+     * @param margin Marge en ms : le token est considéré expiré {@code margin} avant {@code exp}
+     * @return true si le token a un {@code exp} lisible et encore à venir
+     */
+    public static boolean isValid(String token, long margin) {
+        long expiresAt = expiresAt(token);
+        return expiresAt > 0L && System.currentTimeMillis() + margin < expiresAt;
+    }
+
+    /**
+     * @return Les claims (partie centrale décodée), ou null si le token n'est pas un JWT
+     */
+    public static JsonObject claims(String token) {
+        if (token == null) return null;
+        int first = token.indexOf('.');
+        int second = first < 0 ? -1 : token.indexOf('.', first + 1);
+        if (second < 0) return null;
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(token.substring(first + 1, second));
+            JsonElement claims = JsonParser.parseString(new String(payload, AuthConstants.UTF_8));
+            return claims.isJsonObject() ? claims.getAsJsonObject() : null;
+        } catch (RuntimeException e) {
+            return null;            // base64 ou JSON invalide
+        }
+    }
+
+    private JwtUtil() {}
+}
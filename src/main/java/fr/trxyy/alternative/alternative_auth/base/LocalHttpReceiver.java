@@ -1,45 +1,283 @@
 package fr.trxyy.alternative.alternative_auth.base;
 
+import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.BindException;
 import java.net.InetSocketAddress;
-import java.net.URI;
+import java.net.URLDecoder;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class LocalHttpReceiver {
+/**
+ * Serveur local qui reçoit les redirections OAuth ({@code /callback?code=...&state=...}).
+ *
+ *   • plusieurs connexions en cours sur un même port : chacune est enregistrée
+ *     avec son {@code state} ({@link #register(String)}) et reçoit son propre code ;
+ *   • un callback dont le {@code state} est inconnu ou expiré est refusé (400) ;
+ *   • requêtes traitées sur un pool (threads virtuels si la JVM en a) ;
+ *   • une connexion sans réponse échoue après {@link #setFlowTimeout(long)} ;
+ *   • tous les threads sont démons : un serveur jamais arrêté ne bloque pas
+ *     la fin de la JVM, mais garde son port jusqu'à {@link #stop()} ;
+ *   • si le port est occupé, repli possible sur un port libre : utiliser alors
+ *     {@link #getRedirectUri()} (Microsoft accepte n'importe quel port pour
+ *     {@code http://localhost} sur une application native).
+ *
+ * L'ancienne API ({@link #waitForCode()}, sans state) reste disponible pour
+ * une seule connexion à la fois.
+ */
+public class LocalHttpReceiver implements AutoCloseable {
+
+    public static final String PATH = "/callback";
+    public static final long DEFAULT_FLOW_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final int WORKERS = 4;
+    private static final SecureRandom RANDOM = new SecureRandom();
 
     private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledThreadPoolExecutor timer;
+    private final ConcurrentHashMap<String, Flow> flows = new ConcurrentHashMap<>();
     private final CompletableFuture<String> codeFuture = new CompletableFuture<>();
+    private volatile boolean legacyWaiting;
+    private volatile long flowTimeout = DEFAULT_FLOW_TIMEOUT_MS;
 
+    /**
+     * @param port Port d'écoute sur localhost ; si occupé, un port libre est choisi
+     */
     public LocalHttpReceiver(int port) throws IOException {
-        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
-        server.createContext("/callback", exchange -> {
-            URI requestURI = exchange.getRequestURI();
-            String query   = requestURI.getRawQuery();          // code=...&state=...
-            String response = "<html><body>Connexion terminée ! "
-                            + "Vous pouvez retourner dans le launcher.</body></html>";
-
-            exchange.sendResponseHeaders(200, response.length());
-            try (OutputStream os = exchange.getResponseBody()) {
-                os.write(response.getBytes());
-            }
-            // récupère le paramètre code
-            for (String kv : query.split("&")) {
-                if (kv.startsWith("code=")) {
-                    codeFuture.complete(kv.substring("code=".length()));
-                    break;
-                }
+        this("localhost", port, true);
+    }
+
+    /**
+     * @param port Port d'écoute (0 = port libre)
+     * @param ephemeralFallback true pour se replier sur un port libre si {@code port} est occupé
+     */
+    public LocalHttpReceiver(String host, int port, boolean ephemeralFallback) throws IOException {
+        this.server = bind(host, port, ephemeralFallback);
+        this.executor = newExecutor();
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "AAuth-callback-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.server.createContext(PATH, this::handle);
+        this.server.setExecutor(this.executor);
+        start(this.server);
+    }
+
+    /*──────────────────── Connexions ────────────────────*/
+
+    /** @return Un state aléatoire (128 bits, base64url) pour une nouvelle connexion */
+    public static String newState() {
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Attend le callback portant ce {@code state}.
+     * @return Le code d'autorisation ; échoue si Microsoft renvoie une erreur ou
+     *         après le délai d'expiration ({@link TimeoutException})
+     */
+    public CompletableFuture<String> register(String state) {
+        Flow flow = new Flow();
+        if (this.flows.putIfAbsent(state, flow) != null) {
+            throw new IllegalStateException("Connexion déjà en cours pour ce state");
+        }
+        long timeout = this.flowTimeout;
+        flow.timeout = this.timer.schedule(() -> {
+            if (this.flows.remove(state, flow)) {
+                flow.code.completeExceptionally(new TimeoutException(
+                        "Aucune réponse du navigateur après " + timeout / 1000L + " s"));
             }
+        }, timeout, TimeUnit.MILLISECONDS);
+        // fin de la connexion (code, erreur, ou annulation par l'appelant) : libère le state
+        flow.code.whenComplete((code, error) -> {
+            this.flows.remove(state, flow);
+            flow.timeout.cancel(false);
         });
-        server.start();
+        return flow.code;
     }
 
+    /** Abandonne une connexion en cours ; son callback sera refusé. */
+    public void cancel(String state) {
+        Flow flow = this.flows.remove(state);
+        if (flow != null) flow.code.cancel(false);
+    }
+
+    /** @return Le nombre de connexions en attente de leur callback */
+    public int getPendingFlows() {
+        return this.flows.size();
+    }
+
+    /**
+     * Ancienne API : le code du premier callback dont le state n'a pas été
+     * enregistré par {@link #register(String)}.
+     */
     public CompletableFuture<String> waitForCode() {
-        return codeFuture;
+        this.legacyWaiting = true;
+        return this.codeFuture;
+    }
+
+    /*──────────────────── Réglages ────────────────────*/
+
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    /** @return L'adresse de redirection à donner à Microsoft (port réellement utilisé) */
+    public String getRedirectUri() {
+        return "http://localhost:" + getPort() + PATH;
+    }
+
+    public long getFlowTimeout() {
+        return this.flowTimeout;
+    }
+
+    /** Délai d'attente des connexions enregistrées ensuite. */
+    public void setFlowTimeout(long millis) {
+        this.flowTimeout = millis;
     }
 
     public void stop() {
-        server.stop(0);
+        this.server.stop(0);
+        this.executor.shutdownNow();
+        this.timer.shutdownNow();
+        IOException closed = new IOException("Serveur de callback arrêté");
+        for (Flow flow : this.flows.values()) flow.code.completeExceptionally(closed);
+        this.flows.clear();
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /*──────────────────── Interne ────────────────────*/
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                respond(exchange, 405, "Méthode non autorisée.");
+                return;
+            }
+            String query = exchange.getRequestURI().getRawQuery();          // code=...&state=...
+            if (query == null || query.isEmpty()) {
+                respond(exchange, 400, "Requête invalide.");
+                return;
+            }
+            Map<String, String> params = parse(query);
+            String state = params.get("state");
+            Flow flow = state == null ? null : this.flows.remove(state);
+            CompletableFuture<String> target = flow != null ? flow.code
+                    : this.legacyWaiting && !this.codeFuture.isDone() ? this.codeFuture : null;
+            if (target == null) {
+                respond(exchange, 400, "Connexion inconnue ou expirée, recommencez depuis le launcher.");
+                return;
+            }
+            String error = params.get("error");
+            String code = params.get("code");
+            if (error != null || code == null) {
+                String description = params.get("error_description");
+                target.completeExceptionally(new IOException("Connexion refusée : "
+                        + (error != null ? error : "code absent") + (description != null ? " (" + description + ")" : "")));
+                respond(exchange, 200, "Connexion annulée. Vous pouvez retourner dans le launcher.");
+                return;
+            }
+            respond(exchange, 200, "Connexion terminée ! Vous pouvez retourner dans le launcher.");
+            target.complete(code);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = ("<html><body>" + message + "</body></html>").getBytes(AuthConstants.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static Map<String, String> parse(String query) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        for (String kv : query.split("&")) {
+            int eq = kv.indexOf('=');
+            if (eq <= 0) continue;
+            params.putIfAbsent(URLDecoder.decode(kv.substring(0, eq), "UTF-8"),
+                    URLDecoder.decode(kv.substring(eq + 1), "UTF-8"));
+        }
+        return params;
+    }
+
+    private static HttpServer bind(String host, int port, boolean ephemeralFallback) throws IOException {
+        try {
+            return HttpServer.create(new InetSocketAddress(host, port), 0);
+        } catch (BindException e) {
+            if (!ephemeralFallback || port == 0) throw e;
+            HttpServer server = HttpServer.create(new InetSocketAddress(host, 0), 0);
+            Logger.info("Port {} occupé, callback sur le port {}", port, server.getAddress().getPort());
+            return server;
+        }
+    }
+
+    /**
+     * Le thread « HTTP-Dispatcher » hérite du statut démon du thread qui appelle
+     * {@link HttpServer#start()} : démarré depuis un thread démon, il ne retient
+     * pas la JVM si {@link #stop()} n'est jamais appelé.
+     */
+    private static void start(HttpServer server) throws IOException {
+        Thread starter = new Thread(server::start, "AAuth-callback-start");
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.stop(0);
+            throw new IOException("Démarrage du serveur de callback interrompu", e);
+        }
+    }
+
+    /** Threads virtuels (Java 21+) s'ils existent, sinon un petit pool de threads démons. */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException notAvailable) {
+            AtomicInteger counter = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(WORKERS, WORKERS, 30L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, "AAuth-callback-" + counter.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    /** Une connexion en attente de son callback. */
+    private static final class Flow {
+        final CompletableFuture<String> code = new CompletableFuture<>();
+        volatile ScheduledFuture<?> timeout;
     }
 }
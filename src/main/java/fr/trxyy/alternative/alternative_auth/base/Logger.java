@@ -1,28 +1,253 @@
 package fr.trxyy.alternative.alternative_auth.base;
 
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.ServiceLoader;
+import java.util.function.Supplier;
+
 /**
+ * Logs of the library.
+ *
+ * Messages are only built when their level is enabled : use {@code {}}
+ * placeholders ({@code Logger.debug("{} → HTTP {}", url, status)}) or a
+ * Supplier instead of concatenating. Token fields and parameters are always
+ * masked ({@link Redactor}).
+ *
+ * If an SLF4J binding is on the classpath, messages go to SLF4J (logger
+ * "AAuth"). Otherwise they are written to the console by a background thread
+ * ({@link AsyncLogAppender}), so auth threads never wait on the console.
+ * Placeholders are then rendered on that thread : pass immutable values.
+ *
+ * Level : system property {@value #LEVEL_PROPERTY} (TRACE, DEBUG, INFO, WARN, ERROR, OFF),
+ * INFO by default. {@value #ASYNC_PROPERTY}=false writes synchronously.
+ *
  * @author Trxyy
  */
 public class Logger {
 
+	public static final String LEVEL_PROPERTY = "alternative.auth.logLevel";
+	public static final String ASYNC_PROPERTY = "alternative.auth.logAsync";
+
+	public enum Level { TRACE, DEBUG, INFO, WARN, ERROR, OFF }
+
+	private static final int RING_SIZE = 8192;
+
+	private static volatile Level level = parseLevel(System.getProperty(LEVEL_PROPERTY), Level.INFO);
+	private static final Backend BACKEND = createBackend();
+
 	/**
-	 * Log a text
+	 * Log a text (INFO)
 	 * @param s The text to log
 	 */
 	public static void log(String s) {
-		System.out.println(getName() + s);
+		emit(Level.INFO, s, null);
 	}
 
 	/**
-	 * Log a text with error
+	 * Log a text with error (ERROR)
 	 * @param s The text to log
 	 */
 	public static void err(String s) {
-		System.err.println(getName() + s);
+		emit(Level.ERROR, s, null);
+	}
+
+	/*──────────────────── Levels ────────────────────*/
+
+	public static void trace(String pattern, Object... args) {
+		emit(Level.TRACE, pattern, args);
+	}
+
+	public static void debug(String pattern, Object... args) {
+		emit(Level.DEBUG, pattern, args);
+	}
+
+	public static void info(String pattern, Object... args) {
+		emit(Level.INFO, pattern, args);
+	}
+
+	public static void warn(String pattern, Object... args) {
+		emit(Level.WARN, pattern, args);
+	}
+
+	public static void error(String pattern, Object... args) {
+		emit(Level.ERROR, pattern, args);
+	}
+
+	/**
+	 * @param message Only called if the level is enabled
+	 */
+	public static void log(Level at, Supplier<String> message) {
+		if (isEnabled(at)) {
+			emit(at, message.get(), null);
+		}
+	}
+
+	public static boolean isEnabled(Level at) {
+		return at != Level.OFF && at.compareTo(level) >= 0 && BACKEND.isEnabled(at);
+	}
+
+	public static Level getLevel() {
+		return level;
+	}
+
+	public static void setLevel(Level newLevel) {
+		level = newLevel;
+	}
+
+	/**
+	 * Wait until the messages already logged are written (async console only).
+	 */
+	public static void flush() {
+		BACKEND.flush();
+	}
+
+	/*──────────────────── Rendering ────────────────────*/
+
+	private static void emit(Level at, String pattern, Object[] args) {
+		if (isEnabled(at)) {
+			BACKEND.write(at, pattern, args);
+		}
+	}
+
+	/**
+	 * Replace each {} by the next argument, then mask secrets.
+	 * A Throwable left without placeholder is appended (its message).
+	 */
+	static String render(String pattern, Object[] args) {
+		String text = String.valueOf(pattern);
+		if (args != null && args.length > 0) {
+			StringBuilder sb = new StringBuilder(text.length() + 16 * args.length);
+			int from = 0, next = 0, at;
+			while (next < args.length && (at = text.indexOf("{}", from)) >= 0) {
+				sb.append(text, from, at).append(String.valueOf(args[next++]));
+				from = at + 2;
+			}
+			sb.append(text, from, text.length());
+			if (next < args.length && args[args.length - 1] instanceof Throwable) {
+				sb.append(" : ").append(args[args.length - 1]);
+			}
+			text = sb.toString();
+		}
+		return Redactor.redact(text);
 	}
-	
+
+	static String prefix(Level at) {
+		return at == Level.INFO ? getName() : getName() + "[" + at + "] ";
+	}
+
+	/** Resolved on each write : System.out may be redirected (see AuthCli). */
+	static PrintStream streamFor(Level at) {
+		return at.compareTo(Level.WARN) >= 0 ? System.err : System.out;
+	}
+
 	private static String getName() {
 		return "[AAuth]";
 	}
 
+	private static Level parseLevel(String value, Level def) {
+		if (value == null || value.isEmpty()) {
+			return def;
+		}
+		try {
+			return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			return def;
+		}
+	}
+
+	/*──────────────────── Backends ────────────────────*/
+
+	private interface Backend {
+		boolean isEnabled(Level at);
+		void write(Level at, String pattern, Object[] args);
+		default void flush() {}
+	}
+
+	private static Backend createBackend() {
+		if (hasSlf4jBinding()) {
+			try {
+				return new Slf4jBackend();
+			} catch (LinkageError e) {
+				// slf4j-api missing at runtime : console
+			}
+		}
+		if (!"false".equalsIgnoreCase(System.getProperty(ASYNC_PROPERTY))) {
+			AsyncLogAppender appender = new AsyncLogAppender(RING_SIZE);
+			return new Backend() {
+				@Override
+				public boolean isEnabled(Level at) {
+					return true;
+				}
+
+				@Override
+				public void write(Level at, String pattern, Object[] args) {
+					appender.offer(new AsyncLogAppender.Record(at, pattern, args));
+				}
+
+				@Override
+				public void flush() {
+					appender.flush();
+				}
+			};
+		}
+		return new Backend() {
+			@Override
+			public boolean isEnabled(Level at) {
+				return true;
+			}
+
+			@Override
+			public void write(Level at, String pattern, Object[] args) {
+				streamFor(at).println(prefix(at) + render(pattern, args));
+			}
+		};
+	}
+
+	/** An SLF4J binding is present : 1.7 (StaticLoggerBinder) or 2.x (service provider). */
+	private static boolean hasSlf4jBinding() {
+		try {
+			Class.forName("org.slf4j.impl.StaticLoggerBinder");
+			return true;
+		} catch (Throwable notFound) {
+			// no 1.7 binding
+		}
+		try {
+			Class<?> provider = Class.forName("org.slf4j.spi.SLF4JServiceProvider");
+			return ServiceLoader.load(provider).iterator().hasNext();
+		} catch (Throwable notFound) {
+			return false;
+		}
+	}
+
+	/** Rendering (and masking) is done here, only for enabled levels. */
+	private static final class Slf4jBackend implements Backend {
+		private final org.slf4j.Logger delegate = org.slf4j.LoggerFactory.getLogger("AAuth");
+
+		@Override
+		public boolean isEnabled(Level at) {
+			switch (at) {
+				case TRACE: return this.delegate.isTraceEnabled();
+				case DEBUG: return this.delegate.isDebugEnabled();
+				case INFO:  return this.delegate.isInfoEnabled();
+				case WARN:  return this.delegate.isWarnEnabled();
+				case ERROR: return this.delegate.isErrorEnabled();
+				default:    return false;
+			}
+		}
+
+		@Override
+		public void write(Level at, String pattern, Object[] args) {
+			String message = render(pattern, args);
+			Throwable thrown = args != null && args.length > 0 && args[args.length - 1] instanceof Throwable
+					? (Throwable) args[args.length - 1] : null;
+			switch (at) {
+				case TRACE: this.delegate.trace(message, thrown); break;
+				case DEBUG: this.delegate.debug(message, thrown); break;
+				case INFO:  this.delegate.info(message, thrown); break;
+				case WARN:  this.delegate.warn(message, thrown); break;
+				default:    this.delegate.error(message, thrown); break;
+			}
+		}
+	}
+
 }
@@ -0,0 +1,75 @@
+package fr.trxyy.alternative.alternative_auth.base;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Masque les secrets (tokens, codes, mots de passe) avant qu'un texte ne
+ * parte dans les logs : champs JSON {@code "clé":"valeur"} et paramètres
+ * {@code clé=valeur} (formulaires, query strings).
+ */
+public final class Redactor {
+
+    /** Noms de champs sensibles, en minuscules. */
+    private static final Set<String> SECRET_FIELDS = new HashSet<>(Arrays.asList(
+            "access_token", "refresh_token", "id_token", "accesstoken", "clienttoken",
+            "token", "identitytoken", "rpsticket", "device_code", "code", "code_verifier",
+            "client_secret", "password", "authorization"));
+
+    /**
+     * Quantificateurs possessifs : une longue valeur ne fait pas déborder la pile.
+     * Une valeur coupée en fin de texte (corps tronqué) est masquée aussi.
+     */
+    private static final Pattern JSON_FIELD = Pattern.compile("\"([A-Za-z_]+)\"\\s*:\\s*\"((?:[^\"\\\\]++|\\\\.?)*+)(?:\"|\\z)");
+    private static final Pattern PARAM = Pattern.compile("(^|[?&\\s])([A-Za-z_]+)=([^&\\s]*)");
+
+    /** @return Le texte avec la valeur des champs sensibles masquée */
+    public static String redact(String text) {
+        if (text == null || text.isEmpty()) return text;
+        return redactParams(redactJson(text));
+    }
+
+    /** @return true si le champ ne doit jamais être journalisé en clair */
+    public static boolean isSecret(String field) {
+        return field != null && SECRET_FIELDS.contains(field.toLowerCase(Locale.ROOT));
+    }
+
+    /** @return Un masque ne révélant que la longueur du secret */
+    public static String mask(String secret) {
+        return secret == null ? "null" : "***(" + secret.length() + ")";
+    }
+
+    private static String redactJson(String text) {
+        Matcher m = JSON_FIELD.matcher(text);
+        if (!m.find()) return text;
+        StringBuffer sb = new StringBuffer(text.length());
+        do {
+            String replacement = isSecret(m.group(1))
+                    ? "\"" + m.group(1) + "\":\"" + mask(m.group(2)) + "\""
+                    : m.group();
+            m.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+        } while (m.find());
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    private static String redactParams(String text) {
+        Matcher m = PARAM.matcher(text);
+        if (!m.find()) return text;
+        StringBuffer sb = new StringBuffer(text.length());
+        do {
+            String replacement = isSecret(m.group(2))
+                    ? m.group(1) + m.group(2) + "=" + mask(m.group(3))
+                    : m.group();
+            m.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+        } while (m.find());
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    private Redactor() {}
+}
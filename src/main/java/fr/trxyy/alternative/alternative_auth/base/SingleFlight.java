@@ -0,0 +1,73 @@
+package fr.trxyy.alternative.alternative_auth.base;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Regroupe les appels concurrents portant sur une même clé : le premier
+ * appelant lance le travail, les suivants attendent son résultat au lieu
+ * de le refaire. Une fois terminé, l'appel suivant repart de zéro
+ * (aucun résultat n'est mis en cache).
+ *
+ * Utilisé pour qu'un même refresh_token ne soit jamais échangé deux fois en
+ * parallèle : Microsoft le fait tourner, le second échange échouerait ou
+ * invaliderait le token enregistré par le premier.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Version asynchrone.
+     * @param call Lance le travail ; appelé seulement si aucun appel n'est en cours pour {@code key}
+     * @return Le résultat partagé. Annuler ce future n'annule pas le travail des autres appelants.
+     */
+    public CompletableFuture<V> run(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = this.inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            return existing.thenApply(v -> v);
+        }
+        CompletableFuture<V> work;
+        try {
+            work = call.get();
+        } catch (Throwable t) {
+            work = Futures.failed(t);
+        }
+        work.whenComplete((value, error) -> {
+            this.inFlight.remove(key, promise);
+            if (error != null) promise.completeExceptionally(Futures.unwrap(error));
+            else promise.complete(value);
+        });
+        return promise.thenApply(v -> v);
+    }
+
+    /**
+     * Version bloquante : le premier appelant exécute {@code task} dans son thread,
+     * les suivants attendent son résultat (ou son exception).
+     */
+    public V execute(K key, Callable<V> task) throws Exception {
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = this.inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            return Futures.await(existing);
+        }
+        try {
+            V value = task.call();
+            this.inFlight.remove(key, promise);
+            promise.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            this.inFlight.remove(key, promise);
+            promise.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /** @return true si un appel est en cours pour cette clé */
+    public boolean isInFlight(K key) {
+        return this.inFlight.containsKey(key);
+    }
+}
@@ -1,6 +1,7 @@
 package fr.trxyy.alternative.alternative_auth.base;
 
 import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * @author Trxyy
@@ -9,17 +10,18 @@ public class TokenGenerator {
 
 	/**
 	 * The SecureRandom
+	 * @deprecated No longer used : tokens come from a per-thread random, without a shared lock
 	 */
+	@Deprecated
 	protected static SecureRandom random = new SecureRandom();
 
 	/**
-	 * Generate a token
+	 * Generate a token (offline sessions only, not a secret)
 	 * @param username The username
 	 * @return The username with a random
 	 */
-	public synchronized static String generateToken(String username) {
-		long longToken = Math.abs(random.nextLong());
-		String random = Long.toString(longToken, 16);
-		return (username + ":" + random);
+	public static String generateToken(String username) {
+		long longToken = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+		return (username + ":" + Long.toString(longToken, 16));
 	}
 }
\ No newline at end of file
@@ -0,0 +1,300 @@
+package fr.trxyy.alternative.alternative_auth.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.google.gson.JsonObject;
+
+import fr.trxyy.alternative.alternative_auth.account.AccountStore;
+import fr.trxyy.alternative.alternative_auth.account.OfflineSessionFactory;
+import fr.trxyy.alternative.alternative_auth.account.Session;
+import fr.trxyy.alternative.alternative_auth.base.AuthConstants;
+import fr.trxyy.alternative.alternative_auth.base.Futures;
+import fr.trxyy.alternative.alternative_auth.base.Logger;
+import fr.trxyy.alternative.alternative_auth.base.Redactor;
+import fr.trxyy.alternative.alternative_auth.microsoft.AccountRefreshResult;
+import fr.trxyy.alternative.alternative_auth.microsoft.BulkRefresher;
+import fr.trxyy.alternative.alternative_auth.microsoft.MicrosoftLoginService;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MicrosoftModel;
+
+/**
+ * Outil en ligne de commande, sans écran : lit une clé de compte par ligne
+ * (fichier ou entrée standard) et écrit une session par ligne, en JSON.
+ *
+ * <pre>
+ * java -cp ... fr.trxyy.alternative.alternative_auth.cli.AuthCli --mode refresh --all
+ * cat comptes.txt | java -cp ... AuthCli --mode login --store /srv/comptes
+ * </pre>
+ *
+ * Modes :
+ *   • {@code refresh} (défaut) : refresh des comptes du {@link AccountStore}, tokens renouvelés enregistrés ;
+ *   • {@code login} : device flow, le code à saisir est écrit sur la sortie d'erreur ;
+ *   • {@code offline} : sessions hors ligne ({@link OfflineSessionFactory}), la ligne est le pseudo.
+ *
+ * Les lignes sont traitées au fil de l'eau, au plus {@code --parallel} en même
+ * temps ; chaque résultat est écrit dès qu'il est prêt (ordre non garanti).
+ * Les logs de la librairie passent sur la sortie d'erreur pour ne pas se mêler au JSON.
+ * Code de sortie : 0 si tout a réussi, 1 si au moins un compte a échoué, 2 si les arguments sont invalides.
+ */
+public final class AuthCli {
+
+    private static final String MODE_REFRESH = "refresh";
+    private static final String MODE_LOGIN = "login";
+    private static final String MODE_OFFLINE = "offline";
+
+    private final AccountStore store;
+    private final int parallelism;
+    private final PrintStream console;
+    private final Writer output;
+    private final AtomicInteger failures = new AtomicInteger();
+
+    AuthCli(AccountStore store, int parallelism, Writer output, PrintStream console) {
+        this.store = store;
+        this.parallelism = parallelism;
+        this.output = output;
+        this.console = console;
+    }
+
+    public static void main(String[] args) {
+        PrintStream stdout = System.out;
+        System.setOut(System.err);          // Logger écrit sur System.out
+        int status = run(args, System.in, stdout, System.err);
+        Logger.flush();
+        System.exit(status);
+    }
+
+    /**
+     * @return Le code de sortie
+     */
+    public static int run(String[] args, InputStream stdin, OutputStream stdout, PrintStream console) {
+        Options options = options();
+        CommandLine cmd;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            console.println(e.getMessage());
+            help(options, console);
+            return 2;
+        }
+        if (cmd.hasOption("help")) {
+            help(options, console);
+            return 0;
+        }
+        String mode = cmd.getOptionValue("mode", MODE_REFRESH);
+        if (!MODE_REFRESH.equals(mode) && !MODE_LOGIN.equals(mode) && !MODE_OFFLINE.equals(mode)) {
+            console.println("Mode inconnu : " + mode);
+            help(options, console);
+            return 2;
+        }
+        int parallelism;
+        try {
+            parallelism = Math.max(1, Integer.parseInt(cmd.getOptionValue("parallel",
+                    String.valueOf(BulkRefresher.DEFAULT_PARALLELISM))));
+        } catch (NumberFormatException e) {
+            console.println("--parallel : nombre attendu");
+            return 2;
+        }
+        AccountStore store = cmd.hasOption("store")
+                ? new AccountStore(new File(cmd.getOptionValue("store")))
+                : new AccountStore();
+
+        String input = cmd.getOptionValue("input", "-");
+        String outputFile = cmd.getOptionValue("output", "-");
+        try (InputStream in = "-".equals(input) ? stdin : new FileInputStream(input);
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                     "-".equals(outputFile) ? stdout : new FileOutputStream(outputFile), AuthConstants.UTF_8))) {
+            AuthCli cli = new AuthCli(store, parallelism, out, console);
+            Iterator<String> accounts = cmd.hasOption("all") ? new ArrayList<>(store.accounts()).iterator() : lines(in);
+            switch (mode) {
+                case MODE_REFRESH: cli.refresh(accounts); break;
+                case MODE_LOGIN:   cli.login(accounts); break;
+                default:           cli.offline(accounts); break;
+            }
+            store.flush();
+            return cli.failures.get() == 0 ? 0 : 1;
+        } catch (IOException e) {
+            console.println("Erreur : " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /*──────────────────── Modes ────────────────────*/
+
+    void refresh(Iterator<String> accounts) throws IOException {
+        try (BulkRefresher refresher = new BulkRefresher(this.parallelism)) {
+            pipeline(accounts, account -> {
+                MicrosoftModel stored = this.store.load(account);
+                if (stored == null) {
+                    return Futures.failed(new IllegalStateException("Compte inconnu"));
+                }
+                return refresher.refresh(account, stored).thenApply(result -> {
+                    if (!result.isSuccess()) throw new IllegalStateException(message(result));
+                    this.store.save(account, result.getTokens());
+                    this.store.config(account).saveMinecraftSession(result.getSession());
+                    return result.getSession();
+                });
+            });
+        }
+    }
+
+    void login(Iterator<String> accounts) throws IOException {
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(this.parallelism, r -> {
+            Thread t = new Thread(r, "AAuth-cli-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            pipeline(accounts, account -> {
+                MicrosoftLoginService service = new MicrosoftLoginService(this.store.config(account));
+                return service.deviceFlowAsync(pool, code -> this.console.println("[" + account + "] Ouvrir "
+                        + code.getVerificationUri() + " et saisir le code " + code.getUserCode()));
+            });
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    void offline(Iterator<String> names) throws IOException {
+        while (names.hasNext()) {
+            String name = names.next();
+            write(success(name, OfflineSessionFactory.create(name), 0L));
+        }
+    }
+
+    /**
+     * Lance {@code task} pour chaque compte, au plus {@code parallelism} à la fois,
+     * et écrit chaque résultat dès qu'il arrive. Revient quand tout est écrit.
+     */
+    private void pipeline(Iterator<String> accounts, Function<String, CompletableFuture<Session>> task)
+            throws IOException {
+        Semaphore slots = new Semaphore(this.parallelism);
+        while (accounts.hasNext()) {
+            String account = accounts.next();
+            slots.acquireUninterruptibly();
+            long start = System.nanoTime();
+            CompletableFuture<Session> future;
+            try {
+                future = task.apply(account);
+            } catch (RuntimeException e) {
+                future = Futures.failed(e);
+            }
+            future.whenComplete((session, error) -> {
+                long ms = (System.nanoTime() - start) / 1000000L;
+                try {
+                    write(error == null ? success(account, session, ms) : failure(account, Futures.unwrap(error), ms));
+                    flush();
+                } catch (IOException e) {
+                    this.console.println("Écriture impossible : " + e.getMessage());
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+        slots.acquireUninterruptibly(this.parallelism);     // attend les derniers comptes
+    }
+
+    /*──────────────────── Sortie ────────────────────*/
+
+    private JsonObject success(String account, Session session, long ms) {
+        JsonObject line = new JsonObject();
+        line.addProperty("account", account);
+        line.addProperty("ok", true);
+        line.addProperty("username", session.getUsername());
+        line.addProperty("uuid", session.getUuid());
+        line.addProperty("token", session.getToken());
+        line.addProperty("ms", ms);
+        return line;
+    }
+
+    private JsonObject failure(String account, Throwable error, long ms) {
+        this.failures.incrementAndGet();
+        JsonObject line = new JsonObject();
+        line.addProperty("account", account);
+        line.addProperty("ok", false);
+        line.addProperty("error", Redactor.redact(String.valueOf(error.getMessage())));
+        line.addProperty("ms", ms);
+        return line;
+    }
+
+    private void write(JsonObject line) throws IOException {
+        String json = AuthConstants.getGson().toJson(line);
+        synchronized (this.output) {
+            this.output.write(json);
+            this.output.write('\n');
+        }
+    }
+
+    /** Rend les lignes visibles tout de suite (modes réseau : un résultat toutes les quelques centaines de ms). */
+    private void flush() throws IOException {
+        synchronized (this.output) {
+            this.output.flush();
+        }
+    }
+
+    private static String message(AccountRefreshResult result) {
+        Throwable error = Futures.unwrap(result.getError());
+        return error.getMessage() != null ? error.getMessage() : error.toString();
+    }
+
+    /*──────────────────── Arguments ────────────────────*/
+
+    private static Options options() {
+        Options options = new Options();
+        options.addOption(Option.builder("m").longOpt("mode").hasArg().argName("mode")
+                .desc("refresh (défaut), login ou offline").build());
+        options.addOption(Option.builder("i").longOpt("input").hasArg().argName("fichier")
+                .desc("une clé de compte (ou un pseudo) par ligne ; - pour l'entrée standard (défaut)").build());
+        options.addOption(Option.builder("o").longOpt("output").hasArg().argName("fichier")
+                .desc("sessions en JSON, une par ligne ; - pour la sortie standard (défaut)").build());
+        options.addOption(Option.builder("s").longOpt("store").hasArg().argName("dossier")
+                .desc("dossier des comptes (défaut : accounts/ du dossier de configuration)").build());
+        options.addOption(Option.builder("p").longOpt("parallel").hasArg().argName("n")
+                .desc("comptes traités en même temps (défaut : " + BulkRefresher.DEFAULT_PARALLELISM + ")").build());
+        options.addOption(Option.builder("a").longOpt("all")
+                .desc("tous les comptes du dossier, au lieu de l'entrée").build());
+        options.addOption(Option.builder("h").longOpt("help").desc("affiche cette aide").build());
+        return options;
+    }
+
+    private static void help(Options options, PrintStream console) {
+        PrintWriter writer = new PrintWriter(console);
+        new HelpFormatter().printHelp(writer, 100, "AuthCli", null, options, 2, 2, null, true);
+        writer.flush();
+    }
+
+    /** Lignes non vides de l'entrée, lues à la demande ; {@code #} commente une ligne. */
+    private static Iterator<String> lines(InputStream in) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, AuthConstants.UTF_8));
+        return reader.lines()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .iterator();
+    }
+}
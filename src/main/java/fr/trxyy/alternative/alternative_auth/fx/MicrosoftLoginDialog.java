@@ -0,0 +1,74 @@
+package fr.trxyy.alternative.alternative_auth.fx;
+
+import java.awt.Desktop;
+import java.net.URI;
+
+import fr.trxyy.alternative.alternative_auth.base.Logger;
+import fr.trxyy.alternative.alternative_auth.microsoft.MicrosoftOAuthClient.DeviceCode;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+/**
+ * Fenêtre d'attente JavaFX de la connexion Microsoft : ouvre la page de
+ * Microsoft dans le navigateur et affiche un indicateur jusqu'à la fin.
+ *
+ * Seule classe de la librairie qui dépend de JavaFX et d'AWT ; la connexion
+ * elle-même est faite par {@link fr.trxyy.alternative.alternative_auth.microsoft.MicrosoftLoginService}.
+ */
+public class MicrosoftLoginDialog {
+
+    private final Stage stage;
+
+    private MicrosoftLoginDialog(Stage stage) {
+        this.stage = stage;
+    }
+
+    /** Crée et affiche la fenêtre (thread JavaFX). */
+    public static MicrosoftLoginDialog open() {
+        ProgressIndicator spinner = new ProgressIndicator();
+        spinner.setPrefSize(80, 80);
+        StackPane content = new StackPane(spinner);
+        content.setPadding(new Insets(20));
+
+        Stage dlg = new Stage();
+        dlg.setScene(new Scene(content, 300, 160));
+        dlg.setTitle("Connexion Microsoft");
+        dlg.initModality(Modality.APPLICATION_MODAL);
+        dlg.setResizable(false);
+        dlg.show();
+        return new MicrosoftLoginDialog(dlg);
+    }
+
+    /** Présente le device code : navigateur sur la page officielle, code dans les logs. */
+    public void showCode(DeviceCode deviceCode) {
+        // Ouvre la page Microsoft officielle
+        browse(deviceCode.getVerificationUri());
+        // Affiche le code à l’utilisateur (UI à toi)
+        Platform.runLater(() -> {
+            Logger.info("Code Microsoft : {}", deviceCode.getUserCode());
+            // 👉 idéalement : popup / label visible
+        });
+    }
+
+    /**
+     * Ouvre une page dans le navigateur par défaut, par exemple l'URL de
+     * connexion de {@code MicrosoftLoginService#pkceFlowAsync}.
+     */
+    public static void browse(String url) {
+        try {
+            Desktop.getDesktop().browse(URI.create(url));
+        } catch (Exception e) {
+            Logger.warn("Impossible d'ouvrir le navigateur : {}", e.getMessage());
+        }
+    }
+
+    /** Ferme la fenêtre ; utilisable depuis n'importe quel thread. */
+    public void close() {
+        Platform.runLater(this.stage::close);
+    }
+}
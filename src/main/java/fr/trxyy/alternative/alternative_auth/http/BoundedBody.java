@@ -0,0 +1,126 @@
+package fr.trxyy.alternative.alternative_auth.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+
+import fr.trxyy.alternative.alternative_auth.base.AuthConstants;
+
+/**
+ * Lecture bornée des corps de réponse.
+ *
+ *   • taille maximale imposée : au-delà, {@link IOException} sans avoir tout lu ;
+ *   • lecture en String dans un tampon réutilisé par thread (seuls les
+ *     tampons de taille raisonnable sont conservés d'un appel à l'autre).
+ */
+public final class BoundedBody {
+
+    private static final int INITIAL_BUFFER = 8 * 1024;
+    /** Au-delà, le tampon agrandi n'est pas conservé pour le thread. */
+    private static final int RETAINED_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[INITIAL_BUFFER]);
+
+    /**
+     * Lit tout le corps.
+     * @return Le corps décodé (charset du Content-Type, UTF-8 par défaut), ou "" s'il est absent
+     */
+    public static String toString(HttpEntity entity, int maxBytes) throws IOException {
+        if (entity == null) return "";
+        checkLength(entity, maxBytes);
+        byte[] buffer = BUFFER.get();
+        int limit = (int) Math.min(Integer.MAX_VALUE, maxBytes + 1L);   // un octet de trop suffit à conclure
+        int length = 0;
+        try (InputStream in = entity.getContent()) {
+            if (in == null) return "";
+            while (true) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(limit, buffer.length * 2L));
+                    if (buffer.length <= RETAINED_BUFFER) BUFFER.set(buffer);
+                }
+                int n = in.read(buffer, length, Math.min(buffer.length, limit) - length);
+                if (n == -1) break;
+                length += n;
+                if (length > maxBytes) throw tooLarge(maxBytes);
+            }
+        }
+        return new String(buffer, 0, length, charsetOf(entity));
+    }
+
+    /**
+     * Lit au plus {@code maxBytes} octets du corps, sans échouer au-delà
+     * (pour garder le début d'une réponse d'erreur). Le flux n'est pas fermé.
+     * @return Le début du corps, ou "" s'il est absent
+     */
+    public static String prefix(HttpEntity entity, int maxBytes) throws IOException {
+        if (entity == null) return "";
+        InputStream in = entity.getContent();
+        if (in == null) return "";
+        byte[] buffer = new byte[maxBytes];
+        int length = 0;
+        int n;
+        while (length < maxBytes && (n = in.read(buffer, length, maxBytes - length)) != -1) {
+            length += n;
+        }
+        return new String(buffer, 0, length, charsetOf(entity));
+    }
+
+    /**
+     * Flux du corps limité à {@code maxBytes} (pour un décodage en flux).
+     */
+    public static InputStream open(HttpEntity entity, int maxBytes) throws IOException {
+        checkLength(entity, maxBytes);
+        InputStream in = entity.getContent();
+        return in == null ? null : new Limited(in, maxBytes);
+    }
+
+    private static void checkLength(HttpEntity entity, int maxBytes) throws IOException {
+        if (entity.getContentLength() > maxBytes) throw tooLarge(maxBytes);
+    }
+
+    private static IOException tooLarge(int maxBytes) {
+        return new IOException("Réponse trop volumineuse (> " + maxBytes + " octets)");
+    }
+
+    private static Charset charsetOf(HttpEntity entity) {
+        try {
+            ContentType type = ContentType.get(entity);
+            if (type != null && type.getCharset() != null) return type.getCharset();
+        } catch (RuntimeException ignored) {
+            // Content-Type invalide : UTF-8
+        }
+        return AuthConstants.UTF_8;
+    }
+
+    private static final class Limited extends FilterInputStream {
+        private long remaining;
+        private final int maxBytes;
+
+        Limited(InputStream in, int maxBytes) {
+            super(in);
+            this.remaining = maxBytes;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1 && --this.remaining < 0) throw tooLarge(this.maxBytes);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0 && (this.remaining -= n) < 0) throw tooLarge(this.maxBytes);
+            return n;
+        }
+    }
+
+    private BoundedBody() {}
+}
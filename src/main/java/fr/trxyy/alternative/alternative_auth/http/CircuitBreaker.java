@@ -0,0 +1,74 @@
+package fr.trxyy.alternative.alternative_auth.http;
+
+import java.io.IOException;
+
+/**
+ * Disjoncteur d'un endpoint.
+ *
+ *   • fermé : les appels passent ; {@code failureThreshold} échecs consécutifs l'ouvrent ;
+ *   • ouvert : les appels échouent tout de suite ({@link OpenException}) pendant
+ *     {@code openDuration} ms ;
+ *   • demi-ouvert : un seul appel d'essai passe ; son succès referme le
+ *     disjoncteur, son échec le rouvre.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** Levée sans appel réseau quand le disjoncteur est ouvert. */
+    public static class OpenException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public OpenException(String name) {
+            super("Service " + name + " indisponible (disjoncteur ouvert)");
+        }
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openDuration;
+
+    private State state = State.CLOSED;     // protégé par this
+    private int failures;
+    private long openedAt;
+
+    public CircuitBreaker(String name, int failureThreshold, long openDuration) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Autorise un appel, ou lève {@link OpenException}.
+     */
+    public synchronized void acquire() throws OpenException {
+        if (this.state == State.CLOSED) return;
+        if (this.state == State.OPEN && System.currentTimeMillis() - this.openedAt >= this.openDuration) {
+            this.state = State.HALF_OPEN;   // cet appel sert d'essai
+            return;
+        }
+        throw new OpenException(this.name);
+    }
+
+    public synchronized void onSuccess() {
+        this.failures = 0;
+        this.state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        this.failures++;
+        if (this.state == State.HALF_OPEN || this.failures >= this.failureThreshold) {
+            this.state = State.OPEN;
+            this.openedAt = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized State getState() {
+        return this.state;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+}
@@ -0,0 +1,78 @@
+package fr.trxyy.alternative.alternative_auth.http;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Réponse HTTP hors 2xx d'un service d'authentification.
+ * Garde le début du corps d'erreur (déjà expurgé) : c'est là que XSTS
+ * indique la cause d'un refus ({@code XErr}, ex. 2148916233 = pas de compte Xbox).
+ */
+public class HttpStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Pattern XERR = Pattern.compile("\"XErr\"\\s*:\\s*(\\d+)");
+
+    private final int status;
+    private final long retryAfter;
+    private final String body;
+
+    /**
+     * @param retryAfter Délai demandé par le serveur (en-tête Retry-After, ms), ou -1
+     */
+    public HttpStatusException(int status, String url, long retryAfter) {
+        this(status, url, retryAfter, null);
+    }
+
+    /**
+     * @param body Début du corps de la réponse, sans secret, ou null
+     */
+    public HttpStatusException(int status, String url, long retryAfter, String body) {
+        super(messageOf(status, url, body));
+        this.status = status;
+        this.retryAfter = retryAfter;
+        this.body = body;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /** @return Le délai demandé par le serveur en ms, ou -1 s'il n'en a pas donné */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+    /** @return Le début du corps d'erreur, ou null s'il n'a pas été lu */
+    public String getBody() {
+        return body;
+    }
+
+    /** @return Le code XErr renvoyé par Xbox Live / XSTS, ou -1 */
+    public long getXErr() {
+        return xErrOf(body);
+    }
+
+    /** @return true pour les erreurs passagères côté service (408, 429, 5xx) */
+    public boolean isRetryable() {
+        return status == 408 || status == 429 || status >= 500;
+    }
+
+    private static String messageOf(int status, String url, String body) {
+        long xErr = xErrOf(body);
+        return "HTTP " + status + " : " + url + (xErr >= 0 ? " (XErr " + xErr + ")" : "");
+    }
+
+    private static long xErrOf(String body) {
+        if (body == null) return -1L;
+        Matcher m = XERR.matcher(body);
+        if (!m.find()) return -1L;
+        try {
+            return Long.parseLong(m.group(1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
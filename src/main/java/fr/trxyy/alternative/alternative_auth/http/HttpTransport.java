@@ -0,0 +1,348 @@
+package fr.trxyy.alternative.alternative_auth.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.ssl.SSLContexts;
+
+import fr.trxyy.alternative.alternative_auth.base.AuthConstants;
+import fr.trxyy.alternative.alternative_auth.base.Futures;
+import fr.trxyy.alternative.alternative_auth.base.Logger;
+
+/**
+ * Transport HTTP unique pour toute la chaîne d'authentification.
+ *
+ *   • pool de connexions par hôte (route) ;
+ *   • keep-alive, avec une durée par défaut quand le serveur ne la donne pas ;
+ *   • un seul SSLContext : les sessions TLS sont reprises d'une connexion à l'autre ;
+ *   • timeouts de connexion, de lecture et timeout total par échange.
+ *
+ * Les corps de réponse sont toujours entièrement consommés pour que la
+ * connexion retourne dans le pool.
+ */
+public class HttpTransport implements Closeable {
+
+    private static volatile HttpTransport defaultTransport;
+
+    /** Minuterie partagée qui interrompt les échanges dépassant le timeout total. */
+    private static final ScheduledThreadPoolExecutor TIMEOUTS = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "AAuth-http-timeout");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        TIMEOUTS.setRemoveOnCancelPolicy(true);
+    }
+
+    private final TransportSettings settings;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+
+    public HttpTransport() {
+        this(new TransportSettings());
+    }
+
+    public HttpTransport(TransportSettings settings) {
+        this.settings = settings;
+
+        SSLContext sslContext = SSLContexts.createDefault();
+        sslContext.getClientSessionContext().setSessionTimeout(settings.getTlsSessionTimeout());
+
+        Registry<ConnectionSocketFactory> sockets = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", new SSLConnectionSocketFactory(sslContext,
+                        SSLConnectionSocketFactory.getDefaultHostnameVerifier()))
+                .build();
+
+        this.connectionManager = new PoolingHttpClientConnectionManager(sockets);
+        this.connectionManager.setDefaultMaxPerRoute(settings.getMaxPerRoute());
+        this.connectionManager.setMaxTotal(settings.getMaxTotal());
+        this.connectionManager.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(settings.getConnectTimeout())
+                .setSocketTimeout(settings.getReadTimeout())
+                .setConnectionRequestTimeout(settings.getPoolTimeout())
+                .build();
+
+        this.client = HttpClients.custom()
+                .setConnectionManager(this.connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy(settings.getKeepAlive()))
+                .evictExpiredConnections()
+                .evictIdleConnections(settings.getIdleEviction(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /** @return Le transport partagé par défaut (créé à la première utilisation). */
+    public static HttpTransport getDefault() {
+        HttpTransport t = defaultTransport;
+        if (t == null) {
+            synchronized (HttpTransport.class) {
+                t = defaultTransport;
+                if (t == null) {
+                    defaultTransport = t = new HttpTransport();
+                }
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Remplace le transport par défaut (ex. timeouts propres au launcher).
+     * L'ancien transport n'est pas fermé.
+     */
+    public static void setDefault(HttpTransport transport) {
+        synchronized (HttpTransport.class) {
+            defaultTransport = transport;
+        }
+    }
+
+    public TransportSettings getSettings() {
+        return this.settings;
+    }
+
+    /*──────────────────── Requêtes ────────────────────*/
+
+    /** POST application/x-www-form-urlencoded, renvoie le corps quel que soit le statut. */
+    public String postForm(String url, Map<String, String> params) throws IOException {
+        return postForm(url, params, this::bodyAsString);
+    }
+
+    public <T> T postForm(String url, Map<String, String> params, ResponseHandler<? extends T> handler) throws IOException {
+        List<NameValuePair> pairs = new ArrayList<>(params.size());
+        for (Map.Entry<String, String> e : params.entrySet()) {
+            pairs.add(new BasicNameValuePair(e.getKey(), e.getValue()));
+        }
+        HttpPost post = new HttpPost(url);
+        post.setHeader("Accept", AuthConstants.APP_JSON);
+        post.setEntity(new UrlEncodedFormEntity(pairs, AuthConstants.UTF_8));
+        return execute(post, handler);
+    }
+
+    /** POST application/json, renvoie le corps quel que soit le statut. */
+    public String postJson(String url, String json, Map<String, String> headers) throws IOException {
+        return postJson(url, json, headers, this::bodyAsString);
+    }
+
+    public <T> T postJson(String url, String json, Map<String, String> headers,
+            ResponseHandler<? extends T> handler) throws IOException {
+        HttpPost post = new HttpPost(url);
+        post.setHeader("Accept", AuthConstants.APP_JSON);
+        applyHeaders(post, headers);
+        post.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+        return execute(post, handler);
+    }
+
+    /**
+     * POST d'un corps déjà construit (ex. {@link RequestTemplate#entity(String...)}),
+     * écrit directement dans le flux de la connexion.
+     */
+    public <T> T post(String url, HttpEntity body, Map<String, String> headers,
+            ResponseHandler<? extends T> handler) throws IOException {
+        HttpPost post = new HttpPost(url);
+        post.setHeader("Accept", AuthConstants.APP_JSON);
+        applyHeaders(post, headers);
+        post.setEntity(body);
+        return execute(post, handler);
+    }
+
+    /** GET, renvoie le corps quel que soit le statut. */
+    public String get(String url, Map<String, String> headers) throws IOException {
+        return get(url, headers, this::bodyAsString);
+    }
+
+    public <T> T get(String url, Map<String, String> headers, ResponseHandler<? extends T> handler) throws IOException {
+        HttpGet get = new HttpGet(url);
+        get.setHeader("Accept", AuthConstants.APP_JSON);
+        applyHeaders(get, headers);
+        return execute(get, handler);
+    }
+
+    /**
+     * Exécute une requête en appliquant le timeout total.
+     * Le handler lit la réponse ; la connexion est rendue au pool ensuite.
+     */
+    public <T> T execute(HttpRequestBase request, ResponseHandler<? extends T> handler) throws IOException {
+        RequestScope scope = RequestScope.current();
+        if (scope == null) {
+            return executeTimed(request, handler);
+        }
+        scope.enter(request);                       // abandonnable par la ResiliencePolicy
+        try {
+            return executeTimed(request, handler);
+        } finally {
+            scope.exit(request);
+        }
+    }
+
+    private <T> T executeTimed(HttpRequestBase request, ResponseHandler<? extends T> handler) throws IOException {
+        int total = this.settings.getTotalTimeout();
+        if (total <= 0) {
+            return this.client.execute(request, handler);
+        }
+        AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> watchdog = TIMEOUTS.schedule(() -> {
+            expired.set(true);
+            request.abort();
+        }, total, TimeUnit.MILLISECONDS);
+        try {
+            return this.client.execute(request, handler);
+        } catch (IOException e) {
+            if (expired.get()) {
+                SocketTimeoutException timeout = new SocketTimeoutException(
+                        "Timeout total de " + total + " ms dépassé : " + request.getURI());
+                timeout.initCause(e);
+                throw timeout;
+            }
+            throw e;
+        } finally {
+            watchdog.cancel(false);
+        }
+    }
+
+    /*──────────────────── Préconnexion ────────────────────*/
+
+    /**
+     * Ouvre à l'avance des connexions (DNS, TCP, TLS) et les range dans le pool :
+     * la première requête vers ces hôtes n'a plus de handshake à faire.
+     * Les hôtes sont traités en parallèle.
+     *
+     * @param urls Une connexion par URL : deux URLs du même hôte donnent deux
+     *             connexions (utile pour les appels parallèles)
+     * @return Le nombre de connexions ouvertes ; les hôtes injoignables sont
+     *         ignorés (le future ne termine jamais en erreur)
+     */
+    public CompletableFuture<Integer> warmUp(Collection<String> urls, Executor executor) {
+        Map<HttpRoute, Integer> routes = new LinkedHashMap<>();
+        for (String url : urls) {
+            URI uri = URI.create(url);
+            HttpHost host = new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme());
+            try {
+                // même route que celle calculée par le client (port explicite)
+                HttpHost target = new HttpHost(host.getHostName(),
+                        DefaultSchemePortResolver.INSTANCE.resolve(host), host.getSchemeName());
+                routes.merge(new HttpRoute(target, null, "https".equalsIgnoreCase(host.getSchemeName())), 1, Integer::sum);
+            } catch (Exception e) {
+                Logger.warn("Préconnexion ignorée pour {} : {}", url, e.getMessage());
+            }
+        }
+        List<CompletableFuture<Integer>> all = new ArrayList<>(routes.size());
+        for (Map.Entry<HttpRoute, Integer> e : routes.entrySet()) {
+            all.add(Futures.supply(() -> warmUp(e.getKey(), e.getValue()), executor)
+                    .exceptionally(error -> 0));
+        }
+        return CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> all.stream().mapToInt(CompletableFuture::join).sum());
+    }
+
+    /** Ouvre jusqu'à {@code count} connexions vers la route, gardées jusqu'à la fin pour qu'elles soient distinctes. */
+    private int warmUp(HttpRoute route, int count) {
+        List<HttpClientConnection> leased = new ArrayList<>(count);
+        int opened = 0;
+        try {
+            for (int i = 0; i < count; i++) {
+                HttpClientConnection conn = this.connectionManager.requestConnection(route, null)
+                        .get(this.settings.getPoolTimeout(), TimeUnit.MILLISECONDS);
+                leased.add(conn);
+                if (!conn.isOpen()) {
+                    HttpClientContext context = HttpClientContext.create();
+                    this.connectionManager.connect(conn, route, this.settings.getConnectTimeout(), context);
+                    this.connectionManager.routeComplete(conn, route, context);
+                    opened++;
+                }
+            }
+        } catch (Exception e) {
+            Logger.warn("Préconnexion à {} impossible : {}", route.getTargetHost(), e.getMessage());
+        } finally {
+            for (HttpClientConnection conn : leased) {
+                // une connexion fermée (échec) n'est pas remise dans le pool
+                this.connectionManager.releaseConnection(conn, null, this.settings.getKeepAlive(), TimeUnit.MILLISECONDS);
+            }
+        }
+        return opened;
+    }
+
+    /** Ferme toutes les connexions du pool. */
+    @Override
+    public void close() throws IOException {
+        this.client.close();
+    }
+
+    /*──────────────────── Helpers ────────────────────*/
+
+    private static void applyHeaders(HttpRequestBase request, Map<String, String> headers) {
+        if (headers == null) return;
+        for (Map.Entry<String, String> h : headers.entrySet()) {
+            request.setHeader(h.getKey(), h.getValue());
+        }
+    }
+
+    /** Corps entier, dans la limite de {@link TransportSettings#getMaxBodySize()}. */
+    public String bodyAsString(org.apache.http.HttpResponse response) throws IOException {
+        return BoundedBody.toString(response.getEntity(), this.settings.getMaxBodySize());
+    }
+
+    /** Keep-alive annoncé par le serveur, sinon {@code fallback} ms. */
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(long fallback) {
+        return (response, context) -> {
+            HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (it.hasNext()) {
+                HeaderElement he = it.nextElement();
+                if ("timeout".equalsIgnoreCase(he.getName()) && he.getValue() != null) {
+                    try {
+                        return Long.parseLong(he.getValue()) * 1000L;
+                    } catch (NumberFormatException ignored) {
+                        // valeur invalide : on garde la valeur par défaut
+                    }
+                }
+            }
+            return fallback;
+        };
+    }
+}
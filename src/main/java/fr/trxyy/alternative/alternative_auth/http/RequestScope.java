@@ -0,0 +1,57 @@
+package fr.trxyy.alternative.alternative_auth.http;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.http.client.methods.HttpRequestBase;
+
+/**
+ * Requêtes HTTP en cours d'une tentative, pour pouvoir l'abandonner : la
+ * requête perdante d'un appel doublé par {@link ResiliencePolicy} est
+ * interrompue et rend sa connexion au pool au lieu d'aller jusqu'au bout.
+ *
+ * {@link HttpTransport#execute} enregistre ses requêtes dans la portée du
+ * thread courant, s'il y en a une.
+ */
+final class RequestScope {
+
+    private static final ThreadLocal<RequestScope> CURRENT = new ThreadLocal<>();
+
+    private final Set<HttpRequestBase> requests = ConcurrentHashMap.newKeySet();
+    private volatile boolean aborted;
+
+    /** Exécute {@code call} dans cette portée (thread courant). */
+    <T> T run(Callable<T> call) throws Exception {
+        RequestScope previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.call();
+        } finally {
+            if (previous == null) CURRENT.remove();
+            else CURRENT.set(previous);
+        }
+    }
+
+    /** @return La portée du thread courant, ou {@code null} */
+    static RequestScope current() {
+        return CURRENT.get();
+    }
+
+    void enter(HttpRequestBase request) {
+        this.requests.add(request);
+        if (this.aborted) request.abort();          // abandon arrivé avant l'envoi
+    }
+
+    void exit(HttpRequestBase request) {
+        this.requests.remove(request);
+    }
+
+    /** Interrompt les requêtes en cours et celles à venir de cette portée. */
+    void abort() {
+        this.aborted = true;
+        for (HttpRequestBase request : this.requests) {
+            request.abort();
+        }
+    }
+}
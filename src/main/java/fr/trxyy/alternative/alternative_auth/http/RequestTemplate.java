@@ -0,0 +1,335 @@
+package fr.trxyy.alternative.alternative_auth.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import fr.trxyy.alternative.alternative_auth.base.AuthConstants;
+
+/**
+ * Corps de requête précompilé : les parties constantes sont encodées une
+ * seule fois en octets, seules les valeurs variables (tokens) sont encodées
+ * à chaque requête, directement dans le flux de la connexion.
+ *
+ * <pre>
+ * RequestTemplate XSTS = RequestTemplate.json(
+ *         "{\"Properties\":{\"SandboxId\":\"RETAIL\",\"UserTokens\":[\"%s\"]},...}");
+ * transport.post(url, XSTS.entity(xblToken), headers, handler);
+ * </pre>
+ */
+public final class RequestTemplate {
+
+    /** Marque d'une valeur variable dans un modèle JSON. */
+    public static final String SLOT = "%s";
+
+    private static final ContentType FORM_TYPE =
+            ContentType.create("application/x-www-form-urlencoded", AuthConstants.UTF_8);
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(AuthConstants.UTF_8);
+    private static final int SCRATCH = 2048;
+    private static final ThreadLocal<byte[]> SCRATCH_BUFFER = ThreadLocal.withInitial(() -> new byte[SCRATCH]);
+
+    private final byte[][] segments;
+    private final int constantLength;
+    private final boolean json;
+    private final ContentType contentType;
+
+    private RequestTemplate(List<String> segments, boolean json, ContentType contentType) {
+        this.segments = new byte[segments.size()][];
+        int length = 0;
+        for (int i = 0; i < this.segments.length; i++) {
+            this.segments[i] = segments.get(i).getBytes(AuthConstants.UTF_8);
+            length += this.segments[i].length;
+        }
+        this.constantLength = length;
+        this.json = json;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Modèle JSON ; chaque {@value #SLOT} (placé entre guillemets) reçoit une
+     * valeur, échappée comme chaîne JSON.
+     */
+    public static RequestTemplate json(String template) {
+        List<String> segments = new ArrayList<>();
+        int from = 0, at;
+        while ((at = template.indexOf(SLOT, from)) >= 0) {
+            segments.add(template.substring(from, at));
+            from = at + SLOT.length();
+        }
+        segments.add(template.substring(from));
+        return new RequestTemplate(segments, true, ContentType.APPLICATION_JSON);
+    }
+
+    /**
+     * Formulaire {@code application/x-www-form-urlencoded}.
+     * @param pairs Clé, valeur, clé, valeur... ; une valeur {@code null} est
+     *              variable et reçoit, dans l'ordre, les valeurs de {@link #entity(String...)}
+     */
+    public static RequestTemplate form(String... pairs) {
+        if (pairs.length % 2 != 0) {
+            throw new IllegalArgumentException("Nombre impair d'éléments clé/valeur");
+        }
+        List<String> segments = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (i > 0) current.append('&');
+            current.append(urlEncode(pairs[i])).append('=');
+            if (pairs[i + 1] == null) {
+                segments.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(urlEncode(pairs[i + 1]));
+            }
+        }
+        segments.add(current.toString());
+        return new RequestTemplate(segments, false, FORM_TYPE);
+    }
+
+    public int getSlotCount() {
+        return this.segments.length - 1;
+    }
+
+    /**
+     * @param values Une valeur par emplacement, dans l'ordre
+     * @return Un corps rejouable qui s'écrit directement dans le flux de la connexion
+     */
+    public HttpEntity entity(String... values) {
+        if (values.length != getSlotCount()) {
+            throw new IllegalArgumentException(getSlotCount() + " valeur(s) attendue(s), " + values.length + " reçue(s)");
+        }
+        return new TemplateEntity(values);
+    }
+
+    /** @return Le corps complet en octets (diagnostic, tests) */
+    public byte[] toBytes(String... values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            entity(values).writeTo(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /*──────────────────── Encodage ────────────────────*/
+
+    private long length(String[] values) {
+        long length = this.constantLength;
+        for (String value : values) {
+            length += this.json ? jsonLength(value) : formLength(value);
+        }
+        return length;
+    }
+
+    private void write(OutputStream out, String[] values) throws IOException {
+        byte[] scratch = SCRATCH_BUFFER.get();
+        for (int i = 0; i < this.segments.length; i++) {
+            out.write(this.segments[i]);
+            if (i < values.length) {
+                if (this.json) writeJson(out, values[i], scratch);
+                else writeForm(out, values[i], scratch);
+            }
+        }
+    }
+
+    private static long jsonLength(String value) {
+        if (value == null) return 0;
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') length += 2;
+            else if (c < 0x20) length += 6;
+            else if (c < 0x80) length += 1;
+            else if (c < 0x800) length += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) length += 1;     // isolé : '?'
+            else length += 3;
+        }
+        return length;
+    }
+
+    private static long formLength(String value) {
+        if (value == null) return 0;
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isUnreserved(c) || c == ' ') length += 1;
+            else if (c < 0x80) length += 3;
+            else if (c < 0x800) length += 6;
+            else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 12;
+                i++;
+            } else if (Character.isSurrogate(c)) length += 3;     // isolé : '?' encodé
+            else length += 9;
+        }
+        return length;
+    }
+
+    private static void writeJson(OutputStream out, String value, byte[] buf) throws IOException {
+        if (value == null) return;
+        int pos = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (pos > buf.length - 8) {
+                out.write(buf, 0, pos);
+                pos = 0;
+            }
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buf[pos++] = '\\';
+                buf[pos++] = (byte) c;
+            } else if (c < 0x20) {
+                buf[pos++] = '\\';
+                buf[pos++] = 'u';
+                buf[pos++] = '0';
+                buf[pos++] = '0';
+                buf[pos++] = HEX[c >> 4];
+                buf[pos++] = HEX[c & 0xF];
+            } else if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else {
+                int cp = c;
+                if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    cp = Character.toCodePoint(c, value.charAt(++i));
+                } else if (Character.isSurrogate(c)) {
+                    cp = '?';
+                }
+                pos = utf8(cp, buf, pos);
+            }
+        }
+        out.write(buf, 0, pos);
+    }
+
+    private static void writeForm(OutputStream out, String value, byte[] buf) throws IOException {
+        if (value == null) return;
+        int pos = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (pos > buf.length - 16) {
+                out.write(buf, 0, pos);
+                pos = 0;
+            }
+            char c = value.charAt(i);
+            if (isUnreserved(c)) {
+                buf[pos++] = (byte) c;
+            } else if (c == ' ') {
+                buf[pos++] = '+';
+            } else {
+                int cp = c;
+                if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    cp = Character.toCodePoint(c, value.charAt(++i));
+                } else if (Character.isSurrogate(c)) {
+                    cp = '?';
+                }
+                pos = percentUtf8(cp, buf, pos);
+            }
+        }
+        out.write(buf, 0, pos);
+    }
+
+    /** Caractères laissés tels quels par {@link URLEncoder}. */
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '.' || c == '*';
+    }
+
+    private static int utf8(int cp, byte[] buf, int pos) {
+        if (cp < 0x80) {
+            buf[pos++] = (byte) cp;
+        } else if (cp < 0x800) {
+            buf[pos++] = (byte) (0xC0 | (cp >> 6));
+            buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+        } else if (cp < 0x10000) {
+            buf[pos++] = (byte) (0xE0 | (cp >> 12));
+            buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+        } else {
+            buf[pos++] = (byte) (0xF0 | (cp >> 18));
+            buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+        }
+        return pos;
+    }
+
+    /** Octets UTF-8 du caractère, chacun en %XX. */
+    private static int percentUtf8(int cp, byte[] buf, int pos) {
+        if (cp < 0x80) {
+            return percent(cp, buf, pos);
+        } else if (cp < 0x800) {
+            pos = percent(0xC0 | (cp >> 6), buf, pos);
+        } else if (cp < 0x10000) {
+            pos = percent(0xE0 | (cp >> 12), buf, pos);
+            pos = percent(0x80 | ((cp >> 6) & 0x3F), buf, pos);
+        } else {
+            pos = percent(0xF0 | (cp >> 18), buf, pos);
+            pos = percent(0x80 | ((cp >> 12) & 0x3F), buf, pos);
+            pos = percent(0x80 | ((cp >> 6) & 0x3F), buf, pos);
+        }
+        return percent(0x80 | (cp & 0x3F), buf, pos);
+    }
+
+    private static int percent(int b, byte[] buf, int pos) {
+        buf[pos++] = '%';
+        buf[pos++] = HEX[(b >> 4) & 0xF];
+        buf[pos++] = HEX[b & 0xF];
+        return pos;
+    }
+
+    private static String urlEncode(String s) {
+        try {
+            return URLEncoder.encode(s, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Corps écrit à la demande depuis le modèle et les valeurs. */
+    private final class TemplateEntity extends AbstractHttpEntity {
+        private final String[] values;
+        private final long length;
+
+        TemplateEntity(String[] values) {
+            this.values = values;
+            this.length = RequestTemplate.this.length(values);
+            setContentType(RequestTemplate.this.contentType.toString());
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return this.length;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) this.length);
+            writeTo(out);
+            return new ByteArrayInputStream(out.toByteArray());
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            write(out, this.values);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+}
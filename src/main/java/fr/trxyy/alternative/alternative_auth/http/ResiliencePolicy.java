@@ -0,0 +1,439 @@
+package fr.trxyy.alternative.alternative_auth.http;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.trxyy.alternative.alternative_auth.base.Futures;
+import fr.trxyy.alternative.alternative_auth.base.Logger;
+
+/**
+ * Appels résilients vers un endpoint :
+ *
+ *   • disjoncteur par endpoint : quand un service est tombé, les appels
+ *     échouent tout de suite au lieu d'attendre les timeouts ;
+ *   • nouvelles tentatives bornées, avec backoff « decorrelated jitter »,
+ *     sur les échecs passagers (réseau, 408, 429, 5xx) des appels idempotents ;
+ *     en asynchrone ({@link #executeAsync}), l'attente est planifiée et
+ *     n'occupe aucun thread ;
+ *     un Retry-After plus long que {@code maxDelay} n'est pas attendu ;
+ *   • requête de secours (hedging, désactivé par défaut) : si un appel
+ *     idempotent dépasse le p95 observé de l'endpoint, un second est lancé
+ *     et le premier qui réussit l'emporte ; la requête perdante est
+ *     interrompue. Les secours sont bornés (pool et taux).
+ *
+ * Les échanges non idempotents (échange d'un code ou d'un refresh_token) ne
+ * passent que par le disjoncteur : ils ne sont jamais rejoués.
+ */
+public class ResiliencePolicy {
+
+    private static volatile ResiliencePolicy defaultPolicy;
+
+    /** Fenêtre de latences utilisée pour estimer le p95. */
+    private static final int WINDOW = 128;
+    private static final int MIN_SAMPLES = 20;
+
+    private int maxAttempts = 3;
+    private long baseDelay = 100L;
+    private long maxDelay = 2000L;
+    private int failureThreshold = 5;
+    private long openDuration = 30000L;
+    private boolean hedging = false;
+    private long minHedgeDelay = 50L;
+
+    private final ConcurrentHashMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private volatile ExecutorService hedgePool;
+    /** Crédit de requêtes de secours, en 1/{@value #HEDGE_COST} de requête : +1 par appel doublable. */
+    private final AtomicLong hedgeBudget = new AtomicLong();
+
+    /** Requêtes de secours simultanées au plus (au-delà : pas de secours). */
+    private static final int MAX_HEDGE_THREADS = 8;
+    /** Une requête de secours coûte autant d'appels : au plus 1 secours pour 10 appels. */
+    private static final long HEDGE_COST = 10L;
+    /** Rafale maximale : 10 secours d'affilée après une période calme. */
+    private static final long MAX_HEDGE_BUDGET = 10L * HEDGE_COST;
+
+    /** Planifie les tentatives suivantes des appels asynchrones et les requêtes de secours. */
+    private static final ScheduledThreadPoolExecutor TIMER;
+
+    static {
+        TIMER = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "AAuth-retry");
+            t.setDaemon(true);
+            return t;
+        });
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    /** @return La politique partagée par les clients de la librairie. */
+    public static ResiliencePolicy getDefault() {
+        ResiliencePolicy p = defaultPolicy;
+        if (p == null) {
+            synchronized (ResiliencePolicy.class) {
+                p = defaultPolicy;
+                if (p == null) {
+                    defaultPolicy = p = new ResiliencePolicy();
+                }
+            }
+        }
+        return p;
+    }
+
+    public static void setDefault(ResiliencePolicy policy) {
+        defaultPolicy = policy;
+    }
+
+    /*──────────────────── Exécution ────────────────────*/
+
+    /**
+     * Exécute un appel vers {@code endpoint}, en attendant dans le thread
+     * appelant entre deux tentatives.
+     * @param idempotent true si l'appel peut être rejoué sans effet de bord
+     * @return Le résultat de la première tentative réussie
+     * @throws CircuitBreaker.OpenException si l'endpoint est en panne
+     */
+    public <T> T execute(String endpoint, boolean idempotent, Callable<T> call) throws Exception {
+        Retry retry = new Retry(endpoint, idempotent);
+        while (true) {
+            try {
+                return attempt(retry, call);
+            } catch (Exception e) {
+                long wait = retry.onFailure(e);
+                if (wait < 0) throw e;
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Version asynchrone de {@link #execute} : chaque tentative s'exécute sur
+     * {@code executor} et l'attente entre deux tentatives (backoff, Retry-After)
+     * est planifiée au lieu d'occuper un thread du pool.
+     * Avec {@link Futures#callerRuns()}, l'appel reste bloquant.
+     */
+    public <T> CompletableFuture<T> executeAsync(String endpoint, boolean idempotent, Callable<T> call,
+            Executor executor) {
+        if (executor == Futures.callerRuns()) {
+            return Futures.supply(() -> execute(endpoint, idempotent, call), executor);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attemptAsync(new Retry(endpoint, idempotent), call, executor, result);
+        return result;
+    }
+
+    private <T> void attemptAsync(Retry retry, Callable<T> call, Executor executor, CompletableFuture<T> result) {
+        Futures.supply(() -> attempt(retry, call), executor).whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = Futures.unwrap(error);
+            long wait = cause instanceof Exception ? retry.onFailure((Exception) cause) : -1L;
+            if (wait < 0) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            try {
+                TIMER.schedule(() -> attemptAsync(retry, call, executor, result), wait, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException rejected) {
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+
+    /** Une tentative : disjoncteur, appel (éventuellement doublé), latence. */
+    private <T> T attempt(Retry retry, Callable<T> call) throws Exception {
+        retry.breaker.acquire();
+        long start = System.nanoTime();
+        T value;
+        try {
+            value = this.hedging && retry.idempotent ? hedged(retry.endpoint, call) : call.call();
+        } catch (Exception e) {
+            throw e;                                // compté par Retry.onFailure
+        } catch (Throwable t) {
+            retry.breaker.onFailure();              // sinon un essai HALF_OPEN resterait pris
+            throw t;
+        }
+        retry.breaker.onSuccess();
+        latencies(retry.endpoint).add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return value;
+    }
+
+    /** @return Le disjoncteur de l'endpoint (créé au premier appel). */
+    public CircuitBreaker getBreaker(String endpoint) {
+        return this.breakers.computeIfAbsent(endpoint,
+                name -> new CircuitBreaker(name, this.failureThreshold, this.openDuration));
+    }
+
+    /**
+     * @return Le p95 observé de l'endpoint en ms, ou -1 tant qu'il y a trop peu d'appels
+     */
+    public long getP95(String endpoint) {
+        return latencies(endpoint).quantile(0.95);
+    }
+
+    /**
+     * Appel doublé : le principal s'exécute dans le thread appelant ; au-delà du
+     * p95, un secours part sur le pool des secours (borné, et au plus un appel
+     * sur {@value #HEDGE_COST} en moyenne). La première réponse valide l'emporte
+     * et la requête de l'autre est interrompue.
+     */
+    private <T> T hedged(String endpoint, Callable<T> call) throws Exception {
+        long p95 = getP95(endpoint);
+        if (p95 < 0) return call.call();
+        this.hedgeBudget.updateAndGet(b -> Math.min(MAX_HEDGE_BUDGET, b + 1));
+        Hedge<T> hedge = new Hedge<>(endpoint, p95, call);
+        ScheduledFuture<?> trigger = TIMER.schedule(hedge::launch,
+                Math.max(this.minHedgeDelay, p95), TimeUnit.MILLISECONDS);
+        T value;
+        try {
+            value = hedge.primary.run(call);
+        } catch (Exception primaryError) {
+            trigger.cancel(false);
+            if (hedge.finish()) throw primaryError;
+            try {
+                return Futures.await(hedge.backup);     // secours gagnant (qui nous a interrompus) ou encore en cours
+            } catch (Exception backupError) {
+                throw primaryError;
+            }
+        }
+        trigger.cancel(false);
+        if (!hedge.finish()) hedge.secondary.abort();
+        return value;
+    }
+
+    /** Échec passager côté service : réseau ou statut 408/429/5xx. */
+    private static boolean isTransient(Exception e) {
+        if (e instanceof CircuitBreaker.OpenException) return false;
+        if (e instanceof HttpStatusException) return ((HttpStatusException) e).isRetryable();
+        return e instanceof IOException;
+    }
+
+    private LatencyWindow latencies(String endpoint) {
+        return this.latencies.computeIfAbsent(endpoint, k -> new LatencyWindow());
+    }
+
+    private ExecutorService hedgePool() {
+        ExecutorService pool = this.hedgePool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = this.hedgePool;
+                if (pool == null) {
+                    AtomicInteger counter = new AtomicInteger();
+                    ThreadPoolExecutor created = new ThreadPoolExecutor(0, MAX_HEDGE_THREADS, 30L, TimeUnit.SECONDS,
+                            new SynchronousQueue<>(), r -> {
+                                Thread t = new Thread(r, "AAuth-hedge-" + counter.incrementAndGet());
+                                t.setDaemon(true);
+                                return t;
+                            });
+                    this.hedgePool = pool = created;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /** Course entre un appel et sa requête de secours. */
+    private final class Hedge<T> {
+        final String endpoint;
+        final long p95;
+        final Callable<T> call;
+        final RequestScope primary = new RequestScope();
+        final RequestScope secondary = new RequestScope();
+        final CompletableFuture<T> backup = new CompletableFuture<>();
+        /** 0 : en course, 1 : secours lancé, 2 : terminé sans secours. */
+        final AtomicInteger state = new AtomicInteger();
+
+        Hedge(String endpoint, long p95, Callable<T> call) {
+            this.endpoint = endpoint;
+            this.p95 = p95;
+            this.call = call;
+        }
+
+        /** Minuterie : le principal dépasse le p95. */
+        void launch() {
+            if (!acquireHedge()) return;
+            if (!this.state.compareAndSet(0, 1)) {
+                releaseHedge();
+                return;
+            }
+            Logger.debug("{} : réponse au-delà du p95 ({} ms), requête de secours", this.endpoint, this.p95);
+            try {
+                hedgePool().execute(() -> {
+                    try {
+                        T value = this.secondary.run(this.call);
+                        if (this.backup.complete(value)) this.primary.abort();
+                    } catch (Throwable t) {
+                        this.backup.completeExceptionally(t);
+                    }
+                });
+            } catch (RejectedExecutionException full) {
+                releaseHedge();
+                this.backup.completeExceptionally(full);
+            }
+        }
+
+        /** @return true si aucun secours n'a été lancé (et n'en sera plus) */
+        boolean finish() {
+            return this.state.compareAndSet(0, 2) || this.state.get() == 2;
+        }
+    }
+
+    private boolean acquireHedge() {
+        long b;
+        do {
+            b = this.hedgeBudget.get();
+            if (b < HEDGE_COST) return false;
+        } while (!this.hedgeBudget.compareAndSet(b, b - HEDGE_COST));
+        return true;
+    }
+
+    private void releaseHedge() {
+        this.hedgeBudget.updateAndGet(b -> Math.min(MAX_HEDGE_BUDGET, b + HEDGE_COST));
+    }
+
+    /** État des tentatives d'un appel. */
+    private final class Retry {
+        final String endpoint;
+        final boolean idempotent;
+        final CircuitBreaker breaker;
+        int attempt = 1;
+        long sleep = ResiliencePolicy.this.baseDelay;
+
+        Retry(String endpoint, boolean idempotent) {
+            this.endpoint = endpoint;
+            this.idempotent = idempotent;
+            this.breaker = getBreaker(endpoint);
+        }
+
+        /**
+         * Met à jour le disjoncteur après un échec.
+         * @return Le délai avant la tentative suivante (ms), ou -1 pour abandonner
+         */
+        long onFailure(Exception e) {
+            if (e instanceof CircuitBreaker.OpenException || e instanceof RejectedExecutionException) {
+                return -1L;                         // la tentative n'a pas eu lieu
+            }
+            boolean transientFailure = isTransient(e);
+            if (transientFailure) this.breaker.onFailure();
+            else this.breaker.onSuccess();          // le service a répondu : il est joignable
+            if (!this.idempotent || !transientFailure || this.attempt >= ResiliencePolicy.this.maxAttempts) return -1L;
+
+            // decorrelated jitter : min(max, random(base, précédent * 3))
+            long base = ResiliencePolicy.this.baseDelay;
+            this.sleep = Math.min(ResiliencePolicy.this.maxDelay,
+                    ThreadLocalRandom.current().nextLong(base, Math.max(base + 1, this.sleep * 3)));
+            long wait = this.sleep;
+            if (e instanceof HttpStatusException && ((HttpStatusException) e).getRetryAfter() > 0) {
+                long retryAfter = ((HttpStatusException) e).getRetryAfter();
+                if (retryAfter > ResiliencePolicy.this.maxDelay) return -1L;
+                wait = Math.max(wait, retryAfter);
+            }
+            this.attempt++;
+            Logger.warn("{} : {}, tentative {}/{} dans {} ms",
+                    this.endpoint, e.getMessage(), this.attempt, ResiliencePolicy.this.maxAttempts, wait);
+            return wait;
+        }
+    }
+
+    /** Dernières latences réussies d'un endpoint. */
+    private static final class LatencyWindow {
+        private final long[] samples = new long[WINDOW];
+        private int count;
+        private int next;
+
+        synchronized void add(long millis) {
+            this.samples[this.next] = millis;
+            this.next = (this.next + 1) % WINDOW;
+            if (this.count < WINDOW) this.count++;
+        }
+
+        synchronized long quantile(double q) {
+            if (this.count < MIN_SAMPLES) return -1L;
+            long[] sorted = Arrays.copyOf(this.samples, this.count);
+            Arrays.sort(sorted);
+            return sorted[Math.min(this.count - 1, (int) Math.ceil(q * this.count) - 1)];
+        }
+    }
+
+    /*──────────────────── Réglages ────────────────────*/
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /** Nombre total de tentatives pour un appel idempotent (1 = aucune reprise). */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    public void setBaseDelay(long baseDelay) {
+        this.baseDelay = baseDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /** Échecs consécutifs qui ouvrent un disjoncteur (pour les disjoncteurs créés ensuite). */
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+    /** Durée d'ouverture d'un disjoncteur (pour les disjoncteurs créés ensuite). */
+    public void setOpenDuration(long openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    public void setHedging(boolean hedging) {
+        this.hedging = hedging;
+    }
+
+    public long getMinHedgeDelay() {
+        return minHedgeDelay;
+    }
+
+    /** Délai minimal avant une requête de secours, même si le p95 est plus bas. */
+    public void setMinHedgeDelay(long minHedgeDelay) {
+        this.minHedgeDelay = minHedgeDelay;
+    }
+}
@@ -0,0 +1,107 @@
+package fr.trxyy.alternative.alternative_auth.http;
+
+/**
+ * Réglages du {@link HttpTransport} partagé.
+ * Toutes les durées sont en millisecondes.
+ */
+public class TransportSettings {
+
+    /** Établissement TCP + handshake TLS. */
+    private int connectTimeout = 5000;
+    /** Silence maximal entre deux paquets de la réponse. */
+    private int readTimeout = 10000;
+    /** Durée maximale d'un échange complet (0 = illimitée). */
+    private int totalTimeout = 20000;
+    /** Attente maximale d'une connexion libre dans le pool. */
+    private int poolTimeout = 5000;
+    /** Keep-alive appliqué quand le serveur ne précise rien. */
+    private int keepAlive = 30000;
+    /** Connexions inactives fermées au-delà de ce délai. */
+    private int idleEviction = 60000;
+    private int maxPerRoute = 32;
+    private int maxTotal = 256;
+    /** Durée de conservation des sessions TLS pour la reprise (en secondes). */
+    private int tlsSessionTimeout = 3600;
+    /** Taille maximale d'un corps de réponse (octets). */
+    private int maxBodySize = 512 * 1024;
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public int getTotalTimeout() {
+        return totalTimeout;
+    }
+
+    public void setTotalTimeout(int totalTimeout) {
+        this.totalTimeout = totalTimeout;
+    }
+
+    public int getPoolTimeout() {
+        return poolTimeout;
+    }
+
+    public void setPoolTimeout(int poolTimeout) {
+        this.poolTimeout = poolTimeout;
+    }
+
+    public int getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(int keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public int getIdleEviction() {
+        return idleEviction;
+    }
+
+    public void setIdleEviction(int idleEviction) {
+        this.idleEviction = idleEviction;
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public void setMaxPerRoute(int maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getTlsSessionTimeout() {
+        return tlsSessionTimeout;
+    }
+
+    public void setTlsSessionTimeout(int tlsSessionTimeout) {
+        this.tlsSessionTimeout = tlsSessionTimeout;
+    }
+
+    public int getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    public void setMaxBodySize(int maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+}
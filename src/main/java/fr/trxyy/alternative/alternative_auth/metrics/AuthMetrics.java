@@ -0,0 +1,31 @@
+package fr.trxyy.alternative.alternative_auth.metrics;
+
+/**
+ * Point d'extension pour l'instrumentation de la chaîne d'authentification.
+ *
+ * Toutes les méthodes sont appelées sur le chemin critique, depuis n'importe
+ * quel thread : une implémentation doit être thread-safe et ne jamais bloquer.
+ * Par défaut rien n'est enregistré ({@link #NOOP}) ; {@link MetricsRegistry}
+ * fournit une implémentation en mémoire exportable au format Prometheus.
+ */
+public interface AuthMetrics {
+
+    AuthMetrics NOOP = new AuthMetrics() {};
+
+    /** Un appel de {@code hop} commence. */
+    default void hopStarted(Hop hop) {}
+
+    /**
+     * Un appel de {@code hop} se termine.
+     * @param nanos Durée de l'appel
+     * @param outcome Code HTTP ("200", "429"…), "ok" hors HTTP, ou type d'échec
+     *                ("timeout", "connect", "io", "error")
+     */
+    default void hopCompleted(Hop hop, long nanos, String outcome) {}
+
+    /**
+     * Consultation d'un cache de tokens.
+     * @param cache Nom du cache ("xbl", "xsts", "minecraft"…)
+     */
+    default void cacheLookup(String cache, boolean hit) {}
+}
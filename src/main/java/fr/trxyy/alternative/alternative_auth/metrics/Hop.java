@@ -0,0 +1,28 @@
+package fr.trxyy.alternative.alternative_auth.metrics;
+
+/**
+ * Étapes mesurées de la chaîne d'authentification.
+ */
+public enum Hop {
+    DEVICE_CODE("devicecode"),
+    TOKEN("token"),
+    REFRESH("refresh"),
+    XBL("xbl"),
+    XSTS("xsts"),
+    LOGIN_WITH_XBOX("login_with_xbox"),
+    PROFILE("profile"),
+    ENTITLEMENTS("entitlements"),
+    TEXTURE("texture"),
+    CONFIG_IO("config_io");
+
+    private final String label;
+
+    Hop(String label) {
+        this.label = label;
+    }
+
+    /** @return Le nom utilisé dans les labels des métriques. */
+    public String getLabel() {
+        return this.label;
+    }
+}
@@ -0,0 +1,58 @@
+package fr.trxyy.alternative.alternative_auth.metrics;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.io.IOException;
+
+import fr.trxyy.alternative.alternative_auth.http.HttpStatusException;
+
+/**
+ * Mesure d'un appel : {@link #start(Hop)}, puis {@link #status(int)} ou
+ * {@link #failed(Throwable)}, puis {@link #stop()} (dans un finally).
+ */
+public final class HopTimer {
+
+    private final AuthMetrics metrics;
+    private final Hop hop;
+    private final long started;
+    private volatile String outcome = "ok";
+
+    private HopTimer(AuthMetrics metrics, Hop hop) {
+        this.metrics = metrics;
+        this.hop = hop;
+        this.started = System.nanoTime();
+    }
+
+    public static HopTimer start(Hop hop) {
+        AuthMetrics metrics = Metrics.get();
+        metrics.hopStarted(hop);
+        return new HopTimer(metrics, hop);
+    }
+
+    /** Statut HTTP reçu. */
+    public void status(int code) {
+        this.outcome = String.valueOf(code);
+    }
+
+    public void failed(Throwable error) {
+        this.outcome = outcomeOf(error);
+    }
+
+    /** @return Durée écoulée depuis {@link #start(Hop)} (ms), pour les logs */
+    public long elapsedMillis() {
+        return (System.nanoTime() - this.started) / 1000000L;
+    }
+
+    public void stop() {
+        this.metrics.hopCompleted(this.hop, System.nanoTime() - this.started, this.outcome);
+    }
+
+    /** Un {@link HttpStatusException} garde son statut : un 429 ou un 503 n'est pas une erreur réseau. */
+    static String outcomeOf(Throwable error) {
+        if (error instanceof HttpStatusException) return String.valueOf(((HttpStatusException) error).getStatus());
+        if (error instanceof SocketTimeoutException) return "timeout";
+        if (error instanceof ConnectException) return "connect";
+        if (error instanceof IOException) return "io";
+        return "error";
+    }
+}
@@ -0,0 +1,23 @@
+package fr.trxyy.alternative.alternative_auth.metrics;
+
+/**
+ * Implémentation {@link AuthMetrics} utilisée par toute la librairie.
+ */
+public final class Metrics {
+
+    private static volatile AuthMetrics current = AuthMetrics.NOOP;
+
+    /** @return Les métriques actives ({@link AuthMetrics#NOOP} par défaut). */
+    public static AuthMetrics get() {
+        return current;
+    }
+
+    /**
+     * @param metrics Nouvelle implémentation, ou {@code null} pour désactiver
+     */
+    public static void set(AuthMetrics metrics) {
+        current = metrics == null ? AuthMetrics.NOOP : metrics;
+    }
+
+    private Metrics() {}
+}
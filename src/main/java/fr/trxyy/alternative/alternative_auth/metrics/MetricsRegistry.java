@@ -0,0 +1,179 @@
+package fr.trxyy.alternative.alternative_auth.metrics;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métriques en mémoire, sans verrou :
+ *   • histogramme de latence par hop (buckets fixes, style Prometheus) ;
+ *   • compteur d'appels par hop et par résultat (code HTTP ou type d'échec) ;
+ *   • appels en cours par hop ;
+ *   • hits / miss par cache.
+ *
+ * Exportable au format texte Prometheus ({@link #writePrometheus(Appendable)},
+ * {@link PrometheusExporter}).
+ */
+public class MetricsRegistry implements AuthMetrics {
+
+    /** Bornes supérieures des buckets, en secondes. */
+    private static final double[] BUCKETS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+    private static final long[] BUCKET_NANOS = new long[BUCKETS.length];
+
+    static {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            BUCKET_NANOS[i] = (long) (BUCKETS[i] * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    private static final Hop[] HOPS = Hop.values();
+
+    private final HopStats[] hops = new HopStats[HOPS.length];
+    private final ConcurrentHashMap<String, LongAdder[]> caches = new ConcurrentHashMap<>();
+
+    public MetricsRegistry() {
+        for (Hop hop : HOPS) {
+            this.hops[hop.ordinal()] = new HopStats();
+        }
+    }
+
+    /** Crée un registre et l'installe comme métriques de la librairie. */
+    public static MetricsRegistry install() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Metrics.set(registry);
+        return registry;
+    }
+
+    /*──────────────────── AuthMetrics ────────────────────*/
+
+    @Override
+    public void hopStarted(Hop hop) {
+        this.hops[hop.ordinal()].inFlight.increment();
+    }
+
+    @Override
+    public void hopCompleted(Hop hop, long nanos, String outcome) {
+        HopStats stats = this.hops[hop.ordinal()];
+        stats.inFlight.decrement();
+        stats.buckets.incrementAndGet(bucketOf(nanos));
+        stats.sumNanos.add(nanos);
+        stats.outcomes.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void cacheLookup(String cache, boolean hit) {
+        this.caches.computeIfAbsent(cache, k -> new LongAdder[] { new LongAdder(), new LongAdder() })
+                [hit ? 0 : 1].increment();
+    }
+
+    /*──────────────────── Lecture ────────────────────*/
+
+    public long getCount(Hop hop) {
+        AtomicLongArray buckets = this.hops[hop.ordinal()].buckets;
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) count += buckets.get(i);
+        return count;
+    }
+
+    public long getCount(Hop hop, String outcome) {
+        LongAdder adder = this.hops[hop.ordinal()].outcomes.get(outcome);
+        return adder == null ? 0L : adder.sum();
+    }
+
+    public long getInFlight(Hop hop) {
+        return this.hops[hop.ordinal()].inFlight.sum();
+    }
+
+    /** @return Part de hits du cache (0..1), ou NaN si jamais consulté */
+    public double getHitRatio(String cache) {
+        LongAdder[] counts = this.caches.get(cache);
+        if (counts == null) return Double.NaN;
+        long hits = counts[0].sum(), total = hits + counts[1].sum();
+        return total == 0 ? Double.NaN : (double) hits / total;
+    }
+
+    /**
+     * Estimation d'un quantile à partir des buckets (borne supérieure du bucket).
+     * @return Secondes, ou NaN si aucun appel
+     */
+    public double getQuantile(Hop hop, double quantile) {
+        AtomicLongArray buckets = this.hops[hop.ordinal()].buckets;
+        long total = getCount(hop);
+        if (total == 0) return Double.NaN;
+        long rank = (long) Math.ceil(quantile * total), seen = 0;
+        for (int i = 0; i < BUCKETS.length; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) return BUCKETS[i];
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /*──────────────────── Export ────────────────────*/
+
+    /** Écrit toutes les métriques au format texte Prometheus 0.0.4. */
+    public void writePrometheus(Appendable out) throws IOException {
+        out.append("# HELP aauth_hop_duration_seconds Durée des appels par hop.\n");
+        out.append("# TYPE aauth_hop_duration_seconds histogram\n");
+        for (Hop hop : HOPS) {
+            HopStats stats = this.hops[hop.ordinal()];
+            String label = "hop=\"" + hop.getLabel() + "\"";
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                cumulative += stats.buckets.get(i);
+                out.append("aauth_hop_duration_seconds_bucket{").append(label)
+                        .append(",le=\"").append(String.valueOf(BUCKETS[i])).append("\"} ")
+                        .append(String.valueOf(cumulative)).append('\n');
+            }
+            cumulative += stats.buckets.get(BUCKETS.length);
+            out.append("aauth_hop_duration_seconds_bucket{").append(label).append(",le=\"+Inf\"} ")
+                    .append(String.valueOf(cumulative)).append('\n');
+            out.append("aauth_hop_duration_seconds_sum{").append(label).append("} ")
+                    .append(String.valueOf(stats.sumNanos.sum() / 1e9)).append('\n');
+            out.append("aauth_hop_duration_seconds_count{").append(label).append("} ")
+                    .append(String.valueOf(cumulative)).append('\n');
+        }
+
+        out.append("# HELP aauth_hop_requests_total Appels terminés par hop et par résultat.\n");
+        out.append("# TYPE aauth_hop_requests_total counter\n");
+        for (Hop hop : HOPS) {
+            for (Map.Entry<String, LongAdder> e : this.hops[hop.ordinal()].outcomes.entrySet()) {
+                out.append("aauth_hop_requests_total{hop=\"").append(hop.getLabel())
+                        .append("\",outcome=\"").append(e.getKey()).append("\"} ")
+                        .append(String.valueOf(e.getValue().sum())).append('\n');
+            }
+        }
+
+        out.append("# HELP aauth_hop_in_flight Appels en cours par hop.\n");
+        out.append("# TYPE aauth_hop_in_flight gauge\n");
+        for (Hop hop : HOPS) {
+            out.append("aauth_hop_in_flight{hop=\"").append(hop.getLabel()).append("\"} ")
+                    .append(String.valueOf(getInFlight(hop))).append('\n');
+        }
+
+        out.append("# HELP aauth_cache_lookups_total Consultations des caches de tokens.\n");
+        out.append("# TYPE aauth_cache_lookups_total counter\n");
+        for (Map.Entry<String, LongAdder[]> e : this.caches.entrySet()) {
+            out.append("aauth_cache_lookups_total{cache=\"").append(e.getKey()).append("\",result=\"hit\"} ")
+                    .append(String.valueOf(e.getValue()[0].sum())).append('\n');
+            out.append("aauth_cache_lookups_total{cache=\"").append(e.getKey()).append("\",result=\"miss\"} ")
+                    .append(String.valueOf(e.getValue()[1].sum())).append('\n');
+        }
+    }
+
+    private static int bucketOf(long nanos) {
+        for (int i = 0; i < BUCKET_NANOS.length; i++) {
+            if (nanos <= BUCKET_NANOS[i]) return i;
+        }
+        return BUCKET_NANOS.length;             // +Inf
+    }
+
+    private static final class HopStats {
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKETS.length + 1);
+        final LongAdder sumNanos = new LongAdder();
+        final LongAdder inFlight = new LongAdder();
+        final ConcurrentHashMap<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    }
+}
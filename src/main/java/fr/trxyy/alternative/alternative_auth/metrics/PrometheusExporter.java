@@ -0,0 +1,59 @@
+package fr.trxyy.alternative.alternative_auth.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpServer;
+
+import fr.trxyy.alternative.alternative_auth.base.AuthConstants;
+
+/**
+ * Expose un {@link MetricsRegistry} sur {@code GET /metrics} au format texte
+ * Prometheus, avec le même serveur HTTP que {@code LocalHttpReceiver}.
+ */
+public class PrometheusExporter implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * @param port Port d'écoute (0 = port libre)
+     */
+    public PrometheusExporter(MetricsRegistry registry, String host, int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "AAuth-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        this.server.createContext("/metrics", exchange -> {
+            StringBuilder text = new StringBuilder(8192);
+            registry.writePrometheus(text);
+            byte[] bytes = text.toString().getBytes(AuthConstants.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        });
+        this.server.setExecutor(this.executor);
+        this.server.start();
+    }
+
+    public PrometheusExporter(MetricsRegistry registry, int port) throws IOException {
+        this(registry, "127.0.0.1", port);
+    }
+
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+}
@@ -0,0 +1,54 @@
+package fr.trxyy.alternative.alternative_auth.microsoft;
+
+import fr.trxyy.alternative.alternative_auth.account.Session;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MicrosoftModel;
+
+/**
+ * Résultat du refresh d'un compte : soit les nouveaux tokens et la session,
+ * soit l'erreur rencontrée.
+ */
+public class AccountRefreshResult {
+
+    private final String account;
+    private final MicrosoftModel tokens;
+    private final Session session;
+    private final Throwable error;
+    private final long durationMillis;
+
+    public AccountRefreshResult(String account, MicrosoftModel tokens, Session session,
+            Throwable error, long durationMillis) {
+        this.account = account;
+        this.tokens = tokens;
+        this.session = session;
+        this.error = error;
+        this.durationMillis = durationMillis;
+    }
+
+    /** @return La clé du compte */
+    public String getAccount() {
+        return account;
+    }
+
+    /** @return Les tokens Microsoft obtenus (le refresh_token a pu tourner), ou null en cas d'échec */
+    public MicrosoftModel getTokens() {
+        return tokens;
+    }
+
+    /** @return La session Minecraft, ou null en cas d'échec */
+    public Session getSession() {
+        return session;
+    }
+
+    /** @return L'erreur, ou null en cas de succès */
+    public Throwable getError() {
+        return error;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,107 @@
+package fr.trxyy.alternative.alternative_auth.microsoft;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import fr.trxyy.alternative.alternative_auth.account.Session;
+import fr.trxyy.alternative.alternative_auth.base.Futures;
+import fr.trxyy.alternative.alternative_auth.base.Logger;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MicrosoftModel;
+
+/**
+ * Refresh en masse de comptes Microsoft enregistrés.
+ *
+ * Chaque compte passe par {@link MicrosoftOAuthClient#refreshWithToken} puis par la
+ * chaîne {@link MicrosoftXboxAuth#getLiveToken(String, String)}. Au plus
+ * {@code parallelism} comptes sont traités en même temps ; chaque résultat est
+ * transmis dès qu'il est prêt, et un échec n'interrompt jamais le lot.
+ *
+ * Le pool du {@link fr.trxyy.alternative.alternative_auth.http.HttpTransport} doit
+ * autoriser au moins {@code parallelism} connexions par hôte pour en profiter.
+ */
+public class BulkRefresher implements AutoCloseable {
+
+    public static final int DEFAULT_PARALLELISM = 32;
+
+    private final ExecutorService workers;
+    private final MicrosoftOAuthClient oauth;
+    private final MicrosoftXboxAuth xbox;
+
+    public BulkRefresher() {
+        this(DEFAULT_PARALLELISM);
+    }
+
+    public BulkRefresher(int parallelism) {
+        this(parallelism, new MicrosoftOAuthClient(), new MicrosoftXboxAuth());
+    }
+
+    public BulkRefresher(int parallelism, MicrosoftOAuthClient oauth, MicrosoftXboxAuth xbox) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelism, parallelism, 30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "AAuth-bulk-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.workers = pool;
+        this.oauth = oauth;
+        this.xbox = xbox;
+    }
+
+    /**
+     * Rafraîchit tous les comptes.
+     * @param accounts Clé du compte → tokens enregistrés (refresh_token requis)
+     * @param onResult Appelé pour chaque compte dès qu'il est terminé (depuis un thread du pool)
+     * @return Un future complété quand tous les comptes ont été traités ; sa valeur est le nombre d'échecs
+     */
+    public CompletableFuture<Integer> refreshAll(Map<String, MicrosoftModel> accounts,
+            Consumer<AccountRefreshResult> onResult) {
+        AtomicInteger failures = new AtomicInteger();
+        CompletableFuture<?>[] all = new CompletableFuture<?>[accounts.size()];
+        int i = 0;
+        for (Map.Entry<String, MicrosoftModel> e : accounts.entrySet()) {
+            all[i++] = refresh(e.getKey(), e.getValue()).thenAccept(result -> {
+                if (!result.isSuccess()) failures.incrementAndGet();
+                try {
+                    onResult.accept(result);
+                } catch (RuntimeException listenerError) {
+                    Logger.error("BulkRefresher : erreur du listener pour {} : {}", result.getAccount(), listenerError);
+                }
+            });
+        }
+        return CompletableFuture.allOf(all).thenApply(v -> failures.get());
+    }
+
+    /**
+     * Rafraîchit un seul compte sur le pool ; le future ne termine jamais en erreur.
+     */
+    public CompletableFuture<AccountRefreshResult> refresh(String account, MicrosoftModel stored) {
+        return Futures.supply(() -> {
+            long start = System.nanoTime();
+            try {
+                MicrosoftModel tokens = this.oauth.refreshWithToken(stored.getRefresh_token());
+                Session session = this.xbox.getLiveToken(account, tokens.getAccess_token());
+                return new AccountRefreshResult(account, tokens, session, null, elapsed(start));
+            } catch (Exception ex) {
+                return new AccountRefreshResult(account, null, null, ex, elapsed(start));
+            }
+        }, this.workers);
+    }
+
+    /** Arrête le pool ; les comptes déjà soumis sont terminés. */
+    @Override
+    public void close() {
+        this.workers.shutdown();
+    }
+
+    private static long elapsed(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,155 @@
+package fr.trxyy.alternative.alternative_auth.microsoft;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import fr.trxyy.alternative.alternative_auth.base.Logger;
+import fr.trxyy.alternative.alternative_auth.microsoft.MicrosoftOAuthClient.DeviceCode;
+import fr.trxyy.alternative.alternative_auth.microsoft.MicrosoftOAuthClient.PollResult;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MicrosoftModel;
+
+/**
+ * Polling des device flows en attente, pour un nombre quelconque de flows.
+ *
+ * Un seul thread de minuterie planifie les requêtes ; entre deux requêtes,
+ * un flow n'est qu'une entrée dans la file du timer. Les requêtes elles-mêmes
+ * sont exécutées sur l'Executor donné par l'appelant.
+ *
+ * Conforme à la RFC 8628 :
+ *   • {@code interval} respecté entre deux requêtes ;
+ *   • {@code slow_down} : l'intervalle augmente de 5 s pour la suite du flow ;
+ *   • arrêt à l'échéance du code ({@code expires_in}).
+ */
+public class DeviceCodePoller {
+
+    /** Intervalle par défaut du polling (RFC 8628 §3.2), en secondes. */
+    private static final int DEFAULT_INTERVAL_S = 5;
+    /** Augmentation de l'intervalle à chaque slow_down (RFC 8628 §3.5). */
+    private static final long SLOW_DOWN_STEP_MS = TimeUnit.SECONDS.toMillis(5);
+    /** Délai minimal avant de réessayer après une erreur réseau. */
+    private static final long NETWORK_RETRY_MS = TimeUnit.SECONDS.toMillis(1);
+
+    private static volatile DeviceCodePoller shared;
+
+    private final ScheduledThreadPoolExecutor timer;
+    private final long defaultInterval;
+
+    public DeviceCodePoller() {
+        this(TimeUnit.SECONDS.toMillis(DEFAULT_INTERVAL_S));
+    }
+
+    /**
+     * @param defaultInterval Intervalle (ms) quand le device code n'en donne pas
+     */
+    public DeviceCodePoller(long defaultInterval) {
+        this.defaultInterval = defaultInterval;
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "AAuth-device-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /** @return Le poller partagé de la librairie. */
+    public static DeviceCodePoller shared() {
+        DeviceCodePoller p = shared;
+        if (p == null) {
+            synchronized (DeviceCodePoller.class) {
+                p = shared;
+                if (p == null) {
+                    shared = p = new DeviceCodePoller();
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Démarre le polling d'un device code.
+     * @param executor Exécute chaque requête /token (éviter un Executor direct :
+     *                 la requête tournerait sur le thread du timer)
+     * @return Les tokens une fois la connexion validée ; échoue si le code expire
+     *         ou si l'utilisateur refuse. L'annulation arrête le polling.
+     */
+    public CompletableFuture<MicrosoftModel> poll(MicrosoftOAuthClient client, DeviceCode code, Executor executor) {
+        Flow flow = new Flow(client, code, executor);
+        flow.schedule();
+        return flow.result;
+    }
+
+    /** Arrête le timer ; les flows en attente ne sont plus interrogés. */
+    public void shutdown() {
+        this.timer.shutdownNow();
+    }
+
+    private final class Flow {
+        final MicrosoftOAuthClient client;
+        final DeviceCode code;
+        final Executor executor;
+        final CompletableFuture<MicrosoftModel> result = new CompletableFuture<>();
+        long interval;
+
+        Flow(MicrosoftOAuthClient client, DeviceCode code, Executor executor) {
+            this.client = client;
+            this.code = code;
+            this.executor = executor;
+            this.interval = code.getInterval() > 0
+                    ? TimeUnit.SECONDS.toMillis(code.getInterval()) : DeviceCodePoller.this.defaultInterval;
+        }
+
+        void schedule() {
+            schedule(this.interval);
+        }
+
+        private void schedule(long delay) {
+            if (this.result.isDone()) return;                       // annulé par l'appelant
+            if (System.currentTimeMillis() + delay >= this.code.getExpiresAt()) {
+                this.result.completeExceptionally(
+                        new IllegalStateException("Device code expiré, relancer la connexion."));
+                return;
+            }
+            try {
+                DeviceCodePoller.this.timer.schedule(this::dispatch, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                this.result.completeExceptionally(e);               // poller arrêté
+            }
+        }
+
+        private void dispatch() {
+            if (this.result.isDone()) return;
+            try {
+                this.executor.execute(this::attempt);
+            } catch (RejectedExecutionException e) {
+                this.result.completeExceptionally(e);
+            }
+        }
+
+        private void attempt() {
+            if (this.result.isDone()) return;
+            try {
+                PollResult res = this.client.pollOnce(this.code);
+                if (res.token != null) {
+                    this.result.complete(res.token);
+                    return;
+                }
+                if (res == PollResult.SLOW_DOWN) {
+                    this.interval += SLOW_DOWN_STEP_MS;
+                }
+                schedule();
+            } catch (IOException e) {
+                // coupure réseau ou réponse illisible : on réessaie au prochain intervalle
+                long delay = Math.max(this.interval, NETWORK_RETRY_MS);
+                Logger.warn("Device code : {}, nouvel essai dans {} s",
+                        e.getMessage(), TimeUnit.MILLISECONDS.toSeconds(delay));
+                schedule(delay);
+            } catch (Throwable t) {
+                this.result.completeExceptionally(t);
+            }
+        }
+    }
+}
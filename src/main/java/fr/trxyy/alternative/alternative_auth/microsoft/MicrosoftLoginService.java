@@ -0,0 +1,231 @@
+package fr.trxyy.alternative.alternative_auth.microsoft;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import fr.trxyy.alternative.alternative_auth.account.Session;
+import fr.trxyy.alternative.alternative_auth.base.AuthConfig;
+import fr.trxyy.alternative.alternative_auth.base.EnumAuthConfig;
+import fr.trxyy.alternative.alternative_auth.base.Futures;
+import fr.trxyy.alternative.alternative_auth.base.Logger;
+import fr.trxyy.alternative.alternative_auth.base.SingleFlight;
+import fr.trxyy.alternative.alternative_auth.microsoft.MicrosoftOAuthClient.DeviceCode;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MicrosoftModel;
+
+/**
+ * Connexion Microsoft sans interface : refresh silencieux, device flow, puis
+ * chaîne Xbox → XSTS → Minecraft, pour le compte enregistré dans un {@link AuthConfig}.
+ *
+ * Aucune dépendance à JavaFX ni à AWT : utilisable sur un serveur sans écran
+ * (voir {@link fr.trxyy.alternative.alternative_auth.cli.AuthCli}). La présentation
+ * du device code est laissée à l'appelant ({@code codeHandler}) ; la fenêtre
+ * JavaFX de {@link fr.trxyy.alternative.alternative_auth.base.GameAuth} n'est
+ * qu'une couche au-dessus.
+ */
+public class MicrosoftLoginService {
+
+    /** Refresh en cours par compte : deux appels simultanés ne lancent qu’une chaîne. */
+    private static final SingleFlight<String, Session> REFRESHES = new SingleFlight<>();
+
+    private final AuthConfig config;
+    private final MicrosoftOAuthClient oauth;
+    private final MicrosoftXboxAuth xbox;
+    private TokenRefreshScheduler refreshScheduler;
+
+    /** Compte enregistré dans le fichier par défaut ({@link AuthConfig#defaultDirectory()}). */
+    public MicrosoftLoginService() {
+        this(new AuthConfig(new File(AuthConfig.defaultDirectory(), "auth_infos.json")));
+    }
+
+    /**
+     * @param config Configuration du compte (le fichier est créé à la première connexion)
+     */
+    public MicrosoftLoginService(AuthConfig config) {
+        this(config, new MicrosoftOAuthClient(), new MicrosoftXboxAuth());
+    }
+
+    public MicrosoftLoginService(AuthConfig config, MicrosoftOAuthClient oauth, MicrosoftXboxAuth xbox) {
+        this.config = config;
+        this.oauth = oauth;
+        this.xbox = xbox;
+    }
+
+    /*──────────────────── Connexion ────────────────────*/
+
+    /**
+     * Refresh silencieux si un compte est enregistré, sinon device flow.
+     * @param codeHandler Reçoit le device code à présenter à l’utilisateur
+     */
+    public CompletableFuture<Session> loginAsync(Executor executor, Consumer<DeviceCode> codeHandler) {
+        return refreshAsync(executor).handle((s, refreshError) -> {
+            if (refreshError == null) {
+                return CompletableFuture.completedFuture(s);
+            }
+            Logger.info("Silent refresh failed : {}", Futures.unwrap(refreshError).getMessage());
+            return deviceFlowAsync(executor, codeHandler);
+        }).thenCompose(f -> f);
+    }
+
+    /**
+     * Device flow complet ; les tokens obtenus remplacent ceux du fichier.
+     * @param codeHandler Reçoit le device code à présenter à l’utilisateur
+     */
+    public CompletableFuture<Session> deviceFlowAsync(Executor executor, Consumer<DeviceCode> codeHandler) {
+        // 1️⃣ Récupération du device code, 2️⃣ présentation à l’utilisateur
+        return this.oauth.requestDeviceCodeAsync(executor)
+                .thenCompose(deviceCode -> {
+                    codeHandler.accept(deviceCode);
+                    // 3️⃣ Polling jusqu’à validation
+                    return this.oauth.pollForTokenAsync(deviceCode, executor);
+                })
+                .thenCompose(model -> completeLogin(model, executor));
+    }
+
+    /**
+     * Connexion par code d'autorisation + PKCE ({@link MicrosoftPkceAuth}) : se
+     * termine dès la redirection du navigateur, sans polling. Les tokens obtenus
+     * remplacent ceux du fichier.
+     * @param openBrowser Reçoit l'URL de connexion à ouvrir dans le navigateur
+     */
+    public CompletableFuture<Session> pkceFlowAsync(Executor executor, Consumer<String> openBrowser) {
+        MicrosoftPkceAuth pkce;
+        try {
+            pkce = new MicrosoftPkceAuth(MicrosoftPkceAuth.sharedReceiver(), this.oauth, this.xbox);
+        } catch (IOException e) {
+            return Futures.failed(e);           // port de callback indisponible
+        }
+        return pkce.authorizeAsync(executor, openBrowser).thenCompose(model -> completeLogin(model, executor));
+    }
+
+    /**
+     * Sauvegarde des tokens, puis chaîne Xbox → XSTS → Minecraft.
+     * Le compte a pu changer : rien n'est repris du cache de l'ancien, et les
+     * jetons obtenus sont rangés sous la clé du nouveau une fois son profil connu.
+     */
+    private CompletableFuture<Session> completeLogin(MicrosoftModel model, Executor executor) {
+        XboxTokenCache cache = this.xbox.getTokenCache();
+        cache.invalidate(getAccountKey());
+        // 4️⃣ Sauvegarde tokens (remplace aussi la session Minecraft de l'ancien compte)
+        this.config.createConfigFile(model);
+        // 5️⃣ Chaîne Xbox → XSTS → Minecraft
+        String pending = getAccountKey();
+        cache.invalidate(pending);
+        return this.xbox.getLiveTokenAsync(pending, model.getAccess_token(), executor)
+                .thenApply(s -> {
+                    save(s);
+                    String account = getAccountKey();
+                    cache.rename(pending, account);
+                    return track(account, model, s);
+                });
+    }
+
+    /**
+     * Refresh silencieux : la session Minecraft enregistrée si son token n'expire
+     * pas dans les 5 minutes (lu localement dans le JWT), sinon refresh à partir
+     * du refresh_token enregistré.
+     * Échoue si aucun compte n’est enregistré ou si Microsoft refuse le token.
+     */
+    public CompletableFuture<Session> refreshAsync(Executor executor) {
+        if (!this.config.canRefresh()) {
+            return Futures.failed(new IllegalStateException("Aucun compte Microsoft enregistré."));
+        }
+        try {
+            this.config.loadConfiguration();
+        } catch (Exception e) {
+            return Futures.failed(e);           // configuration illisible
+        }
+        String account = getAccountKey();
+
+        // ⚡ Session Minecraft enregistrée, exp du JWT encore à venir : aucun appel réseau
+        Session saved = this.config.getMinecraftSession(XboxTokenCache.DEFAULT_SAFETY_MARGIN_MS);
+        if (saved != null) {
+            return CompletableFuture.completedFuture(track(account, this.config.microsoftModel, saved));
+        }
+
+        // ⚡ Session déjà rafraîchie en arrière-plan : aucun appel réseau
+        if (this.refreshScheduler != null) {
+            Session ready = this.refreshScheduler.getSession(account);
+            if (ready != null) {
+                return CompletableFuture.completedFuture(ready);
+            }
+        }
+
+        // 🔁 Refresh (un appel déjà en cours pour ce compte est rejoint)
+        String refreshToken = this.config.microsoftModel.getRefresh_token();
+        return REFRESHES.run(account, () -> this.oauth
+                .refreshWithTokenAsync(refreshToken, executor)
+                .thenCompose(m -> {
+                    this.config.updateValues(m);
+                    return this.xbox.getLiveTokenAsync(account, m.getAccess_token(), executor)
+                            .thenApply(s -> track(account, m, save(s)));
+                }))
+                .thenApply(Session::copy);
+    }
+
+    /** Version bloquante de {@link #refreshAsync(Executor)}, exécutée dans le thread appelant. */
+    public Session refresh() throws Exception {
+        return Futures.await(refreshAsync(Futures.callerRuns()));
+    }
+
+    /**
+     * Active le refresh proactif : après chaque connexion réussie, le compte est
+     * confié au scheduler, qui persiste lui-même les tokens renouvelés.
+     */
+    public void enableBackgroundRefresh(TokenRefreshScheduler scheduler) {
+        this.refreshScheduler = scheduler;
+    }
+
+    /*──────────────────── Accès ────────────────────*/
+
+    public AuthConfig getConfig() {
+        return this.config;
+    }
+
+    public boolean hasAccount() {
+        return this.config.canRefresh();
+    }
+
+    /**
+     * Clé du compte pour le cache Xbox, liée à son identité : user_id si
+     * Microsoft le fournit (Live v1 ; le /token v2 ne le renvoie pas), sinon
+     * l'UUID du profil Minecraft enregistré. Avant la première session, le
+     * fichier de configuration sert de clé provisoire.
+     */
+    public String getAccountKey() {
+        MicrosoftModel model = this.config.microsoftModel;
+        if (model != null && model.getUser_id() != null) {
+            return model.getUser_id();
+        }
+        Object uuid = this.config.canRefresh() ? this.config.getValue(EnumAuthConfig.MINECRAFT_UUID) : null;
+        if (uuid != null) {
+            return "minecraft:" + uuid;
+        }
+        return this.config.authConfig.getAbsolutePath();
+    }
+
+    private Session track(String account, MicrosoftModel tokens, Session s) {
+        if (this.refreshScheduler != null) {
+            AuthConfig config = this.config;
+            this.refreshScheduler.track(account, tokens,
+                    (acc, renewed, session) -> {
+                        config.updateValues(renewed);
+                        if (session != null) config.saveMinecraftSession(session);
+                    });
+        }
+        return s;
+    }
+
+    /**
+     * Enregistre la session Minecraft avec les tokens, pour les relances suivantes.
+     * Token sans exp lisible : seul l'UUID du profil est gardé (clé du compte).
+     */
+    private Session save(Session s) {
+        if (!this.config.saveMinecraftSession(s)) {
+            this.config.updateValue(EnumAuthConfig.MINECRAFT_UUID.getOption(), s.getUuid());
+        }
+        return s;
+    }
+}
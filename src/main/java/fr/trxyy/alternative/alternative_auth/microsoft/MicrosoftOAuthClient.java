@@ -1,21 +1,29 @@
 package fr.trxyy.alternative.alternative_auth.microsoft;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.URL;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
-
-import javax.net.ssl.HttpsURLConnection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
+import org.apache.http.HttpEntity;
+import org.apache.http.client.ResponseHandler;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 
+import fr.trxyy.alternative.alternative_auth.base.AuthCodec;
 import fr.trxyy.alternative.alternative_auth.base.AuthConstants;
+import fr.trxyy.alternative.alternative_auth.base.AuthEndpoints;
+import fr.trxyy.alternative.alternative_auth.base.AuthEndpoints.Endpoint;
+import fr.trxyy.alternative.alternative_auth.base.Futures;
 import fr.trxyy.alternative.alternative_auth.base.Logger;
+import fr.trxyy.alternative.alternative_auth.base.Redactor;
+import fr.trxyy.alternative.alternative_auth.base.SingleFlight;
+import fr.trxyy.alternative.alternative_auth.http.HttpTransport;
+import fr.trxyy.alternative.alternative_auth.http.RequestTemplate;
+import fr.trxyy.alternative.alternative_auth.metrics.Hop;
+import fr.trxyy.alternative.alternative_auth.metrics.HopTimer;
 import fr.trxyy.alternative.alternative_auth.microsoft.model.MicrosoftModel;
 
 public class MicrosoftOAuthClient {
@@ -23,13 +31,21 @@ public class MicrosoftOAuthClient {
 	/* ===== Microsoft endpoints ===== */
 	private static final String CLIENT_ID = "33250748-fc1d-4053-825e-1e7b345d5d95";
 
-	private static final String DEVICE_CODE_URL =
-	        "https://login.microsoftonline.com/consumers/oauth2/v2.0/devicecode";
+	private static final String SCOPE = "XboxLive.signin offline_access";
 
-	private static final String TOKEN_URL =
-	        "https://login.microsoftonline.com/consumers/oauth2/v2.0/token";
+	/* Corps précompilés : seuls le device_code ou le refresh_token sont encodés à chaque requête */
+	private static final RequestTemplate DEVICE_CODE_BODY = RequestTemplate.form(
+			"client_id", CLIENT_ID, "scope", SCOPE);
+	private static final RequestTemplate POLL_BODY = RequestTemplate.form(
+			"client_id", CLIENT_ID, "grant_type", "urn:ietf:params:oauth:grant-type:device_code", "device_code", null);
+	private static final RequestTemplate REFRESH_BODY = RequestTemplate.form(
+			"client_id", CLIENT_ID, "grant_type", "refresh_token", "refresh_token", null, "scope", SCOPE);
+	private static final RequestTemplate AUTH_CODE_BODY = RequestTemplate.form(
+			"client_id", CLIENT_ID, "grant_type", "authorization_code", "code", null,
+			"redirect_uri", null, "code_verifier", null, "scope", SCOPE);
 
-	private static final String SCOPE = "XboxLive.signin offline_access";
+	/** Échanges de refresh_token en cours, partagés par tous les clients de la JVM. */
+	private static final SingleFlight<String, MicrosoftModel> REDEMPTIONS = new SingleFlight<>();
 
     /* ===================== MODEL ===================== */
 
@@ -39,6 +55,7 @@ public class MicrosoftOAuthClient {
         private final String verificationUri;
         private final int interval;
         private final int expiresIn;
+        private final long issuedAt;
 
         public DeviceCode(String deviceCode, String userCode,
                           String verificationUri, int interval, int expiresIn) {
@@ -47,6 +64,7 @@ public class MicrosoftOAuthClient {
             this.verificationUri = verificationUri;
             this.interval = interval;
             this.expiresIn = expiresIn;
+            this.issuedAt = System.currentTimeMillis();
         }
 
         public String getDeviceCode()      { return deviceCode; }
@@ -54,22 +72,20 @@ public class MicrosoftOAuthClient {
         public String getVerificationUri() { return verificationUri; }
         public int getInterval()           { return interval; }
         public int getExpiresIn()          { return expiresIn; }
+        /** @return Échéance du code (epoch ms) */
+        public long getExpiresAt()         { return issuedAt + expiresIn * 1000L; }
     }
 
     /* ===================== STEP 1 : DEVICE CODE ===================== */
 
     public DeviceCode requestDeviceCode() throws Exception {
 
-        Map<String, String> body = new HashMap<>();
-        body.put("client_id", CLIENT_ID);
-        body.put("scope", SCOPE);
-
-        String json = postForm(DEVICE_CODE_URL, body);
+        String json = postForm(Hop.DEVICE_CODE, AuthEndpoints.get(Endpoint.DEVICE_CODE), DEVICE_CODE_BODY.entity());
 
         if (json == null || json.isEmpty())
             throw new IllegalStateException("Réponse vide de Microsoft /devicecode");
 
-        JSONObject o = (JSONObject) new JSONParser().parse(json);
+        JSONObject o = parseObject(json, "/devicecode");
 
         if (o.containsKey("error")) {
             throw new IllegalStateException(
@@ -77,101 +93,204 @@ public class MicrosoftOAuthClient {
                     + o.get("error") + " – " + o.get("error_description"));
         }
 
+        Number interval = (Number) o.get("interval");      // absent : défaut du DeviceCodePoller
         return new DeviceCode(
                 (String) o.get("device_code"),
                 (String) o.get("user_code"),
                 (String) o.get("verification_uri"),
-                ((Number) o.get("interval")).intValue(),
+                interval == null ? 0 : interval.intValue(),
                 ((Number) o.get("expires_in")).intValue()
         );
     }
 
     /* ===================== STEP 2 : POLLING TOKEN ===================== */
 
+    /**
+     * Attend la validation par l’utilisateur. Le polling est fait par le
+     * {@link DeviceCodePoller} partagé : seul le thread appelant attend.
+     */
     public MicrosoftModel pollForToken(DeviceCode code) throws Exception {
+        return Futures.await(DeviceCodePoller.shared().poll(this, code, Futures.defaultExecutor()));
+    }
 
-        while (true) {
+    /** Réponse d’une requête de polling. */
+    static final class PollResult {
+        static final PollResult PENDING = new PollResult(null);
+        static final PollResult SLOW_DOWN = new PollResult(null);
 
-            Thread.sleep(code.getInterval() * 1000L);
+        final MicrosoftModel token;
 
-            Map<String, String> body = new HashMap<>();
-            body.put("client_id", CLIENT_ID);
-            body.put("grant_type", "urn:ietf:params:oauth:grant-type:device_code");
-            body.put("device_code", code.getDeviceCode());
+        PollResult(MicrosoftModel token) {
+            this.token = token;
+        }
+    }
 
-            String json = postForm(TOKEN_URL, body);
-            if (json == null || json.isEmpty())
-                continue;
+    /**
+     * Une seule requête /token pour ce device code.
+     * @throws IllegalStateException si le code a expiré ou si l’utilisateur a refusé
+     */
+    PollResult pollOnce(DeviceCode code) throws Exception {
+        String json = postForm(Hop.TOKEN, AuthEndpoints.get(Endpoint.TOKEN), POLL_BODY.entity(code.getDeviceCode()));
+        if (json == null || json.isEmpty())
+            return PollResult.PENDING;
 
-            JSONObject o = (JSONObject) new JSONParser().parse(json);
+        JSONObject o = parseObject(json, "/token");
 
-            if (o.containsKey("access_token")) {
-                return AuthConstants.getGson().fromJson(json, MicrosoftModel.class);
-            }
+        if (o.containsKey("access_token")) {
+            MicrosoftModel model = AuthConstants.getGson().fromJson(json, MicrosoftModel.class);
+            model.markObtained();
+            return new PollResult(model);
+        }
+
+        String err = (String) o.get("error");
 
-            String err = (String) o.get("error");
+        if ("authorization_pending".equals(err))
+            return PollResult.PENDING;
 
-            if ("authorization_pending".equals(err))
-                continue;
+        if ("slow_down".equals(err))
+            return PollResult.SLOW_DOWN;
 
-            if ("slow_down".equals(err))
-                continue;
+        if ("expired_token".equals(err))
+            throw new IllegalStateException("Device code expiré, relancer la connexion.");
+
+        throw new IllegalStateException("Device Flow error : " + Redactor.redact(json));
+    }
 
-            throw new IllegalStateException("Device Flow error : " + json);
+    /**
+     * @param endpoint Nom de l'endpoint, pour le message d'erreur
+     * @throws IOException si la réponse n'est pas un objet JSON (ex. page HTML d'une
+     *         passerelle en 502) : erreur passagère, comme une coupure réseau
+     */
+    private static JSONObject parseObject(String json, String endpoint) throws IOException {
+        Object parsed;
+        try {
+            parsed = new JSONParser().parse(json);
+        } catch (ParseException e) {
+            parsed = null;
         }
+        if (!(parsed instanceof JSONObject))
+            throw new IOException("Réponse illisible de " + endpoint);
+        return (JSONObject) parsed;
     }
 
-    /* ===================== HTTP FORM ===================== */
+    /* ===================== AUTHORIZATION CODE (PKCE) ===================== */
+
+    /**
+     * URL de connexion à ouvrir dans le navigateur ; Microsoft redirige ensuite
+     * vers {@code redirectUri?code=...&state=...}.
+     * @param codeChallenge SHA-256 du code_verifier, en base64url (méthode S256)
+     */
+    public String getAuthorizationUrl(String redirectUri, String state, String codeChallenge) {
+        try {
+            return AuthEndpoints.get(Endpoint.AUTHORIZE)
+                    + "?client_id=" + URLEncoder.encode(CLIENT_ID, "UTF-8")
+                    + "&response_type=code"
+                    + "&response_mode=query"
+                    + "&redirect_uri=" + URLEncoder.encode(redirectUri, "UTF-8")
+                    + "&scope=" + URLEncoder.encode(SCOPE, "UTF-8")
+                    + "&state=" + URLEncoder.encode(state, "UTF-8")
+                    + "&code_challenge=" + URLEncoder.encode(codeChallenge, "UTF-8")
+                    + "&code_challenge_method=S256"
+                    + "&prompt=select_account";
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
-    private static String postForm(String endpoint, Map<String, String> params) throws Exception {
+    /**
+     * Échange le code reçu sur la redirection contre les tokens.
+     * Jamais rejoué : un code ne peut être échangé qu’une fois.
+     * @param redirectUri La même adresse que dans l’URL de connexion
+     */
+    public MicrosoftModel redeemAuthorizationCode(String code, String redirectUri, String codeVerifier) throws Exception {
+        String json = postForm(Hop.TOKEN, AuthEndpoints.get(Endpoint.TOKEN),
+                AUTH_CODE_BODY.entity(code, redirectUri, codeVerifier));
+        MicrosoftModel model = json == null || json.isEmpty() ? null
+                : AuthConstants.getGson().fromJson(json, MicrosoftModel.class);
+        if (model == null || model.getAccess_token() == null)
+            throw new IllegalStateException("Code refusé par Microsoft /token : " + Redactor.redact(json));
+        model.markObtained();
+        return model;
+    }
 
-        StringBuilder data = new StringBuilder();
-        boolean first = true;
+    public CompletableFuture<MicrosoftModel> redeemAuthorizationCodeAsync(String code, String redirectUri,
+            String codeVerifier, Executor executor) {
+        return Futures.supply(() -> redeemAuthorizationCode(code, redirectUri, codeVerifier), executor);
+    }
 
-        for (Map.Entry<String, String> e : params.entrySet()) {
-            if (!first) data.append("&");
-            first = false;
-            data.append(URLEncoder.encode(e.getKey(), "UTF-8"))
-                .append("=")
-                .append(URLEncoder.encode(e.getValue(), "UTF-8"));
-        }
+    /* ===================== HTTP FORM ===================== */
 
-        HttpsURLConnection c = (HttpsURLConnection) new URL(endpoint).openConnection();
-        c.setRequestMethod("POST");
-        c.setDoOutput(true);
-        c.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-        c.setRequestProperty("Accept", "application/json");
+    /** Corps de la réponse (borné) ; seuls le statut et la durée sont journalisés : il contient les tokens. */
+    private static String postForm(Hop hop, String endpoint, HttpEntity form) throws Exception {
+        HopTimer timer = HopTimer.start(hop);
+        try {
+            HttpTransport transport = HttpTransport.getDefault();
+            return transport.post(endpoint, form, null, response -> {
+                int status = response.getStatusLine().getStatusCode();
+                timer.status(status);
+                Logger.debug("POST {} → HTTP {} ({} ms)", endpoint, status, timer.elapsedMillis());
+                return transport.bodyAsString(response);
+            });
+        } catch (Exception e) {
+            timer.failed(e);
+            throw e;
+        } finally {
+            timer.stop();
+        }
+    }
+    
+    /**
+     * Échange le refresh_token contre de nouveaux tokens. Les appels simultanés
+     * avec le même token (plusieurs threads, GameAuth, scheduler, BulkRefresher)
+     * partagent un seul échange.
+     */
+    public MicrosoftModel refreshWithToken(String refreshToken) throws Exception {
+        return REDEMPTIONS.execute(refreshToken, () -> redeem(refreshToken));
+    }
 
-        try (OutputStream os = c.getOutputStream()) {
-            os.write(data.toString().getBytes(StandardCharsets.UTF_8));
+    private MicrosoftModel redeem(String refreshToken) throws Exception {
+        HttpEntity body = REFRESH_BODY.entity(refreshToken);
+
+        // décodage direct depuis le flux : le token n’est jamais recopié dans une String
+        String tokenUrl = AuthEndpoints.get(Endpoint.TOKEN);
+        ResponseHandler<MicrosoftModel> decode = AuthCodec.handler(MicrosoftModel.class);
+        HopTimer timer = HopTimer.start(Hop.REFRESH);
+        MicrosoftModel model;
+        try {
+            model = HttpTransport.getDefault().post(tokenUrl, body, null, response -> {
+                timer.status(response.getStatusLine().getStatusCode());
+                return decode.handleResponse(response);
+            });
+        } catch (Exception e) {
+            timer.failed(e);
+            throw e;
+        } finally {
+            timer.stop();
         }
+        Logger.debug("POST {} → refresh {}", tokenUrl, model != null && model.getAccess_token() != null ? "OK" : "KO");
+        if (model == null || model.getAccess_token() == null)
+            throw new IllegalStateException("Refresh refusé par Microsoft /token");
+        model.markObtained();
+        return model;
+    }
 
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(
-                        c.getResponseCode() == 200
-                                ? c.getInputStream()
-                                : c.getErrorStream(),
-                        StandardCharsets.UTF_8))) {
+    /* ===================== ASYNC ===================== */
 
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null)
-                sb.append(line);
+    public CompletableFuture<DeviceCode> requestDeviceCodeAsync(Executor executor) {
+        return Futures.supply(this::requestDeviceCode, executor);
+    }
 
-            Logger.log("POST " + endpoint + " → " + sb);
-            return sb.toString();
-        }
+    /**
+     * Polling jusqu’à validation par l’utilisateur ou expiration du code.
+     * Aucun thread n’attend entre deux requêtes ; chaque requête est exécutée
+     * sur {@code executor}. Annuler le future arrête le polling.
+     */
+    public CompletableFuture<MicrosoftModel> pollForTokenAsync(DeviceCode code, Executor executor) {
+        return DeviceCodePoller.shared().poll(this, code, executor);
     }
-    
-    public MicrosoftModel refreshWithToken(String refreshToken) throws Exception {
-        Map<String, String> body = new HashMap<>();
-        body.put("client_id", CLIENT_ID);
-        body.put("grant_type", "refresh_token");
-        body.put("refresh_token", refreshToken);
-        body.put("scope", SCOPE);
-
-        String json = postForm(TOKEN_URL, body);
-        return AuthConstants.getGson().fromJson(json, MicrosoftModel.class);
+
+    public CompletableFuture<MicrosoftModel> refreshWithTokenAsync(String refreshToken, Executor executor) {
+        return REDEMPTIONS.run(refreshToken, () -> Futures.supply(() -> redeem(refreshToken), executor));
     }
 
 }
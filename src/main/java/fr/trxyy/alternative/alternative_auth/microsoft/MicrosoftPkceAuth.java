@@ -0,0 +1,140 @@
+package fr.trxyy.alternative.alternative_auth.microsoft;
+
+import java.io.IOException;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import fr.trxyy.alternative.alternative_auth.account.Session;
+import fr.trxyy.alternative.alternative_auth.base.AuthConstants;
+import fr.trxyy.alternative.alternative_auth.base.Futures;
+import fr.trxyy.alternative.alternative_auth.base.LocalHttpReceiver;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MicrosoftModel;
+
+/**
+ * Connexion Microsoft par code d'autorisation + PKCE, redirigée vers le
+ * {@link LocalHttpReceiver} local.
+ *
+ * Contrairement au device flow, rien n'est interrogé en boucle : l'échange du
+ * code part dès que le navigateur atteint {@code http://localhost:<port>/callback},
+ * puis la chaîne {@link MicrosoftXboxAuth#getLiveTokenAsync} enchaîne.
+ * Plusieurs connexions peuvent être en cours en même temps (une par state).
+ *
+ * Le serveur de callback partagé ({@link #sharedReceiver()}) reste ouvert
+ * après les connexions pour servir les suivantes ; le launcher l'arrête avec
+ * {@link #shutdownShared()} (à la fermeture, ou une fois connecté).
+ *
+ * Le client Azure doit déclarer {@code http://localhost/callback} comme
+ * redirection « application mobile et de bureau » (le port n'est pas comparé).
+ */
+public class MicrosoftPkceAuth {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static volatile LocalHttpReceiver sharedReceiver;
+
+    private final LocalHttpReceiver receiver;
+    private final MicrosoftOAuthClient oauth;
+    private final MicrosoftXboxAuth xbox;
+
+    /** Serveur de callback partagé, sur le port de {@link AuthConstants#REDIRECT_URI}. */
+    public MicrosoftPkceAuth() throws IOException {
+        this(sharedReceiver(), new MicrosoftOAuthClient(), new MicrosoftXboxAuth());
+    }
+
+    public MicrosoftPkceAuth(LocalHttpReceiver receiver, MicrosoftOAuthClient oauth, MicrosoftXboxAuth xbox) {
+        this.receiver = receiver;
+        this.oauth = oauth;
+        this.xbox = xbox;
+    }
+
+    /**
+     * @return Le serveur de callback partagé par la JVM, démarré au premier appel
+     *         (port de {@link AuthConstants#REDIRECT_URI}, ou un port libre s'il est pris)
+     */
+    public static LocalHttpReceiver sharedReceiver() throws IOException {
+        LocalHttpReceiver r = sharedReceiver;
+        if (r == null) {
+            synchronized (MicrosoftPkceAuth.class) {
+                r = sharedReceiver;
+                if (r == null) {
+                    int port = URI.create(AuthConstants.REDIRECT_URI).getPort();
+                    sharedReceiver = r = new LocalHttpReceiver(port);
+                }
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Arrête le serveur de callback partagé et libère son port. Les connexions
+     * encore en attente échouent ; un prochain {@link #sharedReceiver()} en
+     * redémarre un. Les instances déjà créées gardent l'ancien (arrêté).
+     */
+    public static void shutdownShared() {
+        LocalHttpReceiver r;
+        synchronized (MicrosoftPkceAuth.class) {
+            r = sharedReceiver;
+            sharedReceiver = null;
+        }
+        if (r != null) r.stop();
+    }
+
+    /*──────────────────── Connexion ────────────────────*/
+
+    /**
+     * Ouvre la connexion et attend la redirection, puis échange le code.
+     * @param openBrowser Reçoit l'URL de connexion à ouvrir dans le navigateur
+     * @return Les tokens Microsoft ; échoue si l'utilisateur refuse ou n'a pas
+     *         terminé avant {@link LocalHttpReceiver#getFlowTimeout()}
+     */
+    public CompletableFuture<MicrosoftModel> authorizeAsync(Executor executor, Consumer<String> openBrowser) {
+        String state = LocalHttpReceiver.newState();
+        String verifier = newVerifier();
+        String redirectUri = this.receiver.getRedirectUri();
+        CompletableFuture<String> code = this.receiver.register(state);
+        try {
+            openBrowser.accept(this.oauth.getAuthorizationUrl(redirectUri, state, challengeOf(verifier)));
+        } catch (RuntimeException e) {
+            this.receiver.cancel(state);
+            return Futures.failed(e);
+        }
+        return code.thenCompose(c -> this.oauth.redeemAuthorizationCodeAsync(c, redirectUri, verifier, executor));
+    }
+
+    /**
+     * Connexion complète : PKCE puis Xbox → XSTS → Minecraft.
+     * @param account Clé du compte dans le cache Xbox ({@code null} = user_id renvoyé par Microsoft)
+     */
+    public CompletableFuture<Session> loginAsync(String account, Executor executor, Consumer<String> openBrowser) {
+        return authorizeAsync(executor, openBrowser).thenCompose(model -> this.xbox.getLiveTokenAsync(
+                account != null ? account : model.getUser_id(), model.getAccess_token(), executor));
+    }
+
+    /*──────────────────── PKCE ────────────────────*/
+
+    /** @return Un code_verifier aléatoire (32 octets, 43 caractères base64url) */
+    static String newVerifier() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /** @return Le code_challenge S256 : base64url(SHA-256(verifier)) */
+    static String challengeOf(String verifier) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(verifier.getBytes(AuthConstants.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    public LocalHttpReceiver getReceiver() {
+        return this.receiver;
+    }
+}
@@ -1,27 +1,38 @@
 package fr.trxyy.alternative.alternative_auth.microsoft;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.URL;
 import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
-import javax.net.ssl.HttpsURLConnection;
-
-import org.json.simple.JSONObject;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.util.EntityUtils;
 
+import fr.trxyy.alternative.alternative_auth.account.MicrosoftSession;
 import fr.trxyy.alternative.alternative_auth.account.Session;
-import fr.trxyy.alternative.alternative_auth.base.AuthConstants;
+import fr.trxyy.alternative.alternative_auth.base.AuthCodec;
+import fr.trxyy.alternative.alternative_auth.base.AuthEndpoints;
+import fr.trxyy.alternative.alternative_auth.base.AuthEndpoints.Endpoint;
+import fr.trxyy.alternative.alternative_auth.base.Futures;
 import fr.trxyy.alternative.alternative_auth.base.Logger;
+import fr.trxyy.alternative.alternative_auth.base.Redactor;
+import fr.trxyy.alternative.alternative_auth.http.BoundedBody;
+import fr.trxyy.alternative.alternative_auth.http.HttpStatusException;
+import fr.trxyy.alternative.alternative_auth.http.HttpTransport;
+import fr.trxyy.alternative.alternative_auth.http.RequestTemplate;
+import fr.trxyy.alternative.alternative_auth.http.ResiliencePolicy;
+import fr.trxyy.alternative.alternative_auth.metrics.Hop;
+import fr.trxyy.alternative.alternative_auth.metrics.HopTimer;
+import fr.trxyy.alternative.alternative_auth.metrics.Metrics;
 import fr.trxyy.alternative.alternative_auth.microsoft.model.MicrosoftModel;
 import fr.trxyy.alternative.alternative_auth.microsoft.model.MinecraftMicrosoftModel;
 import fr.trxyy.alternative.alternative_auth.microsoft.model.MinecraftProfileModel;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MinecraftStoreModel;
 import fr.trxyy.alternative.alternative_auth.microsoft.model.XboxLiveModel;
 
 /**
@@ -34,15 +45,47 @@ public class MicrosoftXboxAuth {
 
     /* Live ID v1 constants */
     private static final String CLIENT_ID = "00000000402b5328";
-    private static final String AUTH_URL  = "https://login.live.com/oauth20_authorize.srf";
-    private static final String TOKEN_URL = "https://login.live.com/oauth20_token.srf";
     private static final String REDIRECT  = "https://login.live.com/oauth20_desktop.srf";
     private static final String SCOPE = "XboxLive.signin offline_access";
+    /** Part du corps d'erreur gardée dans {@link HttpStatusException}. */
+    private static final int ERROR_BODY_BYTES = 2 * 1024;
+
+    private static final Map<String,String> XBL_HEADERS =
+            Collections.singletonMap("x-xbl-contract-version", "1");    // requis
+
+    /* Corps précompilés : seuls les tokens sont encodés à chaque requête */
+    private static final RequestTemplate XBL_BODY = RequestTemplate.json(
+            "{\"Properties\":{\"AuthMethod\":\"RPS\",\"SiteName\":\"user.auth.xboxlive.com\",\"RpsTicket\":\"d=%s\"},"
+            + "\"RelyingParty\":\"http://auth.xboxlive.com\",\"TokenType\":\"JWT\"}");
+    private static final RequestTemplate XSTS_BODY = RequestTemplate.json(
+            "{\"Properties\":{\"SandboxId\":\"RETAIL\",\"UserTokens\":[\"%s\"]},"
+            + "\"RelyingParty\":\"rp://api.minecraftservices.com/\",\"TokenType\":\"JWT\"}");
+    private static final RequestTemplate MC_BODY = RequestTemplate.json(
+            "{\"identityToken\":\"XBL3.0 x=%s;%s\"}");
+    private static final RequestTemplate LIVE_AUTH_CODE = RequestTemplate.form(
+            "client_id", CLIENT_ID, "redirect_uri", REDIRECT, "grant_type", "authorization_code", "code", null);
+    private static final RequestTemplate LIVE_REFRESH = RequestTemplate.form(
+            "client_id", CLIENT_ID, "redirect_uri", REDIRECT, "grant_type", "refresh_token", "refresh_token", null);
+
+    private final XboxTokenCache tokenCache;
+
+    public MicrosoftXboxAuth() {
+        this(XboxTokenCache.shared());
+    }
+
+    public MicrosoftXboxAuth(XboxTokenCache tokenCache) {
+        this.tokenCache = tokenCache;
+    }
+
+    /** @return Le cache des jetons Xbox, XSTS et Minecraft utilisé par cette instance */
+    public XboxTokenCache getTokenCache() {
+        return this.tokenCache;
+    }
 
     /*──────────────────── URL d’autorisation ────────────────────*/
     public String getAuthorizationUrl(String state) {
         try {
-            StringBuilder sb = new StringBuilder(AUTH_URL)
+            StringBuilder sb = new StringBuilder(AuthEndpoints.get(Endpoint.LIVE_AUTHORIZE))
                     .append("?client_id=").append(URLEncoder.encode(CLIENT_ID, "UTF-8"))
                     .append("&response_type=code")
                     .append("&redirect_uri=").append(URLEncoder.encode(REDIRECT, "UTF-8"))
@@ -56,162 +99,250 @@ public class MicrosoftXboxAuth {
 
     /*────────────────── code ↔ access_token ──────────────────*/
     public MicrosoftModel getAuthorizationCode(ParamType type, String code) throws Exception {
-        Map<Object,Object> body = new HashMap<>();
-        body.put("client_id", CLIENT_ID);
-        body.put("redirect_uri", REDIRECT);
-
+        HttpEntity body;
         switch (type) {
             case AUTH:
-                body.put("grant_type", "authorization_code");
-                body.put("code", code);
+                body = LIVE_AUTH_CODE.entity(code);
                 break;
             case REFRESH:
-                body.put("grant_type", "refresh_token");
-                body.put("refresh_token", code);
+                body = LIVE_REFRESH.entity(code);
                 break;
             default:
                 throw new IllegalArgumentException("Seuls AUTH ou REFRESH sont valides.");
         }
 
-        String json = postForm(TOKEN_URL, body);
-        return AuthConstants.getGson().fromJson(json, MicrosoftModel.class);
+        MicrosoftModel model = postForm(type == ParamType.REFRESH ? Hop.REFRESH : Hop.TOKEN,
+                Endpoint.LIVE_TOKEN, body, MicrosoftModel.class);
+        if (model != null) model.markObtained();
+        return model;
     }
 
     /*────────────────── Xbox → XSTS → Minecraft ──────────────────*/
+    /**
+     * Chaîne complète, sans cache (4 hops).
+     */
     public Session getLiveToken(String accessToken) throws Exception {
-        String xblJson = postInformations(ParamType.XBL,
-                AuthConstants.MICROSOFT_AUTHENTICATE_XBOX, accessToken, null);
+        return getLiveToken(null, accessToken);
+    }
 
-        if (xblJson.isEmpty())
-            throw new IllegalStateException("Réponse vide de Xbox Live authenticate.");
+    /**
+     * Chaîne Xbox → XSTS → Minecraft avec reprise au premier hop expiré.
+     * @param account Clé du compte dans le cache ({@code null} = pas de cache)
+     * @param accessToken Access token Microsoft
+     * @return Une {@link MicrosoftSession} (profil et droits mcstore, récupérés en parallèle)
+     */
+    public Session getLiveToken(String account, String accessToken) throws Exception {
+        return Futures.await(getLiveTokenAsync(account, accessToken, Futures.callerRuns()));
+    }
 
-        XboxLiveModel xbl = AuthConstants.getGson().fromJson(xblJson, XboxLiveModel.class);
+    /**
+     * Version asynchrone de {@link #getLiveToken(String, String)} : chaque hop est
+     * une étape du future, exécutée sur {@code executor}.
+     */
+    public CompletableFuture<Session> getLiveTokenAsync(String account, String accessToken, Executor executor) {
+        Session cached = lookup("minecraft", account, this.tokenCache.getMinecraftSession(account));
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.copy());
+        }
+
+        CompletableFuture<XboxLiveModel> xsts;
+        XboxLiveModel cachedXsts = lookup("xsts", account, this.tokenCache.getXstsToken(account));
+        if (cachedXsts != null) {
+            xsts = CompletableFuture.completedFuture(cachedXsts);
+        } else {
+            XboxLiveModel cachedXbl = lookup("xbl", account, this.tokenCache.getUserToken(account));
+            CompletableFuture<XboxLiveModel> xbl = cachedXbl != null
+                    ? CompletableFuture.completedFuture(cachedXbl)
+                    : authenticateXbox(accessToken, executor).thenApply(fresh -> {
+                        this.tokenCache.putUserToken(account, fresh);
+                        return fresh;
+                    });
+            xsts = xbl.thenCompose(userToken -> authorizeXsts(userToken.getToken(), executor)).thenApply(fresh -> {
+                this.tokenCache.putXstsToken(account, fresh);
+                return fresh;
+            });
+        }
+
+        return xsts.thenCompose(token -> loginWithXbox(token, executor))
+                .thenCompose(mc -> {
+                    // profil et droits en parallèle : aucun aller-retour de plus
+                    String auth = mc.getToken_type() + " " + mc.getAccess_token();
+                    CompletableFuture<MinecraftStoreModel> store = getEntitlements(auth, Futures.forParallel(executor));
+                    return getMinecraftProfile(auth, executor)
+                            .thenCombine(store, (prof, entitlements) -> {
+                                Session session = toSession(prof, mc.getAccess_token(), entitlements);
+                                this.tokenCache.putMinecraftSession(account, session, mc.getExpires_in());
+                                return session.copy();
+                            });
+                })
+                .whenComplete((session, error) -> {
+                    // un jeton en cache a pu être révoqué : on repart de zéro au prochain appel
+                    if (error != null) this.tokenCache.invalidate(account);
+                });
+    }
 
-        String xstsJson = postInformations(ParamType.XSTS,
-                AuthConstants.MICROSOFT_AUTHORIZE_XSTS, xbl.getToken(), null);
+    private CompletableFuture<XboxLiveModel> authenticateXbox(String accessToken, Executor executor) {
+        return postInformations(ParamType.XBL, Hop.XBL, Endpoint.XBL_AUTHENTICATE, accessToken, null,
+                XboxLiveModel.class, executor)
+                .thenApply(xbl -> require(xbl, "Réponse vide de Xbox Live authenticate."));
+    }
 
-        if (xstsJson.isEmpty())
-            throw new IllegalStateException("Réponse vide de XSTS.");
+    private CompletableFuture<XboxLiveModel> authorizeXsts(String xblToken, Executor executor) {
+        return postInformations(ParamType.XSTS, Hop.XSTS, Endpoint.XSTS_AUTHORIZE, xblToken, null,
+                XboxLiveModel.class, executor)
+                .thenApply(xsts -> require(xsts, "Réponse vide de XSTS."));
+    }
 
-        XboxLiveModel xsts = AuthConstants.getGson().fromJson(xstsJson, XboxLiveModel.class);
+    private CompletableFuture<MinecraftMicrosoftModel> loginWithXbox(XboxLiveModel xsts, Executor executor) {
+        if (xsts.getDisplayClaims() == null || xsts.getDisplayClaims().getUsers() == null
+                || xsts.getDisplayClaims().getUsers().length == 0)
+            return Futures.failed(new IllegalStateException("Réponse XSTS incomplète (uhs absent)."));
 
-        String mcJson = postInformations(ParamType.MC,
-                AuthConstants.MICROSOFT_LOGIN_XBOX,
-                xsts.getDisplayClaims().getUsers()[0].getUhs(),
-                xsts.getToken());
+        return postInformations(ParamType.MC, Hop.LOGIN_WITH_XBOX, Endpoint.LOGIN_WITH_XBOX,
+                xsts.getDisplayClaims().getUsers()[0].getUhs(), xsts.getToken(),
+                MinecraftMicrosoftModel.class, executor)
+                .thenApply(mc -> require(mc, "Réponse vide de login_with_xbox."));
+    }
 
-        if (mcJson.isEmpty())
-            throw new IllegalStateException("Réponse vide de login_with_xbox.");
+    private CompletableFuture<MinecraftProfileModel> getMinecraftProfile(String auth, Executor executor) {
+        return connectToMinecraft(Hop.PROFILE, Endpoint.MINECRAFT_PROFILE, auth, MinecraftProfileModel.class, executor)
+                .thenApply(prof -> require(prof, "Réponse vide de minecraft/profile."));
+    }
 
-        MinecraftMicrosoftModel mc = AuthConstants.getGson().fromJson(mcJson, MinecraftMicrosoftModel.class);
-        return getMinecraftProfile(mc.getToken_type(), mc.getAccess_token());
+    /** Droits du compte ; {@code null} si mcstore ne répond pas (la connexion n’échoue pas pour autant). */
+    private CompletableFuture<MinecraftStoreModel> getEntitlements(String auth, Executor executor) {
+        return connectToMinecraft(Hop.ENTITLEMENTS, Endpoint.MINECRAFT_STORE, auth, MinecraftStoreModel.class, executor)
+                .exceptionally(e -> {
+                    Logger.warn("mcstore indisponible, droits inconnus : {}", Futures.unwrap(e).getMessage());
+                    return null;
+                });
     }
 
-    private Session getMinecraftProfile(String tokenType, String mcAccessToken) {
-        String profJson = connectToMinecraft(AuthConstants.MICROSOFT_MINECRAFT_PROFILE,
-                                             tokenType + " " + mcAccessToken);
-        if (profJson.isEmpty())
-            throw new IllegalStateException("Réponse vide de minecraft/profile.");
+    private static <T> T require(T value, String message) {
+        if (value == null) throw new IllegalStateException(message);
+        return value;
+    }
 
-        MinecraftProfileModel prof = AuthConstants.getGson().fromJson(profJson, MinecraftProfileModel.class);
+    private static MicrosoftSession toSession(MinecraftProfileModel prof, String mcAccessToken,
+            MinecraftStoreModel entitlements) {
         String uuid = prof.getId().replaceFirst(
                 "(\\p{XDigit}{8})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}+)",
                 "$1-$2-$3-$4-$5");
 
-        return new Session(prof.getName(), mcAccessToken, uuid);
+        return new MicrosoftSession(prof.getName(), mcAccessToken, uuid, prof, entitlements);
     }
 
     /*────────────────── Helpers HTTP ──────────────────*/
-    private static String urlEncode(Object o) {
-        try { return URLEncoder.encode(String.valueOf(o), "UTF-8"); }
-        catch (Exception e) { throw new IllegalStateException(e); }
+    /*
+     * Chaque hop passe par la ResiliencePolicy (disjoncteur par endpoint,
+     * reprises et requête de secours pour les hops idempotents) et lève une
+     * exception en cas d’échec : plus aucun hop ne renvoie null. Les hops de
+     * la chaîne sont asynchrones : l'attente entre deux reprises ne bloque
+     * pas un thread de l'executor.
+     */
+
+    /** Échange de code ou de refresh_token : jamais rejoué (le token a pu être consommé). */
+    private static <T> T postForm(Hop hop, Endpoint endpoint, HttpEntity form, Class<T> type) throws Exception {
+        String url = AuthEndpoints.get(endpoint);
+        return ResiliencePolicy.getDefault().execute(endpoint.name(), false, () -> {
+            HopTimer timer = HopTimer.start(hop);
+            try {
+                return HttpTransport.getDefault().post(url, form, null, decoding("POST", url, type, timer));
+            } catch (IOException e) {
+                timer.failed(e);
+                throw e;
+            } finally {
+                timer.stop();
+            }
+        });
     }
 
-    private static String postForm(String endpoint, Map<Object,Object> params) throws IOException {
-        String data = params.entrySet().stream()
-                .map(e -> urlEncode(e.getKey()) + "=" + urlEncode(e.getValue()))
-                .collect(Collectors.joining("&"));
+    /** Xbox, XSTS et login_with_xbox : émission de jetons sans effet de bord, donc rejouable. */
+    private <T> CompletableFuture<T> postInformations(ParamType type, Hop hop, Endpoint endpoint,
+            String p1, String p2, Class<T> model, Executor executor) {
+        String url = AuthEndpoints.get(endpoint);
+        HttpEntity body = bodyOf(type, p1, p2);
+        return ResiliencePolicy.getDefault().executeAsync(endpoint.name(), true, () -> {
+            HopTimer timer = HopTimer.start(hop);
+            try {
+                return HttpTransport.getDefault().post(url, body, XBL_HEADERS, decoding("POST", url, model, timer));
+            } catch (IOException e) {
+                timer.failed(e);
+                throw e;
+            } finally {
+                timer.stop();
+            }
+        }, executor);
+    }
 
-        HttpsURLConnection c = (HttpsURLConnection) new URL(endpoint).openConnection();
-        c.setRequestMethod("POST");
-        c.setDoOutput(true);
-        c.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-        c.setRequestProperty("Accept", "application/json");
+    private <T> CompletableFuture<T> connectToMinecraft(Hop hop, Endpoint endpoint, String auth,
+            Class<T> model, Executor executor) {
+        String url = AuthEndpoints.get(endpoint);
+        Map<String,String> headers = new HashMap<>(XBL_HEADERS);
+        headers.put("Authorization", auth);
+        return ResiliencePolicy.getDefault().executeAsync(endpoint.name(), true, () -> {
+            HopTimer timer = HopTimer.start(hop);
+            try {
+                return HttpTransport.getDefault().get(url, headers, decoding("GET", url, model, timer));
+            } catch (IOException e) {
+                timer.failed(e);
+                throw e;
+            } finally {
+                timer.stop();
+            }
+        }, executor);
+    }
 
-        try (OutputStream os = c.getOutputStream()) {
-            os.write(data.getBytes(StandardCharsets.UTF_8));
-        }
+    /**
+     * Décode la réponse en flux et trace le statut HTTP.
+     * Hors 2xx : {@link HttpStatusException} avec le début du corps (XErr de XSTS).
+     */
+    private static <T> ResponseHandler<T> decoding(String method, String url, Class<T> model, HopTimer timer) {
+        ResponseHandler<T> decode = AuthCodec.handler(model);
+        return response -> {
+            int status = response.getStatusLine().getStatusCode();
+            timer.status(status);
+            Logger.debug("{} {} → HTTP {} ({} ms)", method, url, status, timer.elapsedMillis());
+            if (status < 200 || status >= 300) {
+                String body = Redactor.redact(BoundedBody.prefix(response.getEntity(), ERROR_BODY_BYTES));
+                EntityUtils.consume(response.getEntity());
+                throw new HttpStatusException(status, url, retryAfter(response.getFirstHeader("Retry-After")), body);
+            }
+            return decode.handleResponse(response);
+        };
+    }
 
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(
-                c.getResponseCode()==200 ? c.getInputStream() : c.getErrorStream(),
-                StandardCharsets.UTF_8))) {
-            return br.lines().collect(Collectors.joining());
-        } finally { c.disconnect(); }
-    }
-
-    private String postInformations(ParamType type, String url,
-            String p1, String p2) {
-
-    	try {
-			byte[] body = new JSONObject(getAuthParameters(type, p1, p2))
-			      .toJSONString()
-			      .getBytes(AuthConstants.UTF_8);
-			
-			HttpsURLConnection c = (HttpsURLConnection) new URL(url).openConnection();
-			c.setRequestMethod("POST");
-			c.setRequestProperty("Content-Type", AuthConstants.APP_JSON);
-			c.setRequestProperty("Accept",       AuthConstants.APP_JSON);
-			c.setRequestProperty("x-xbl-contract-version", "1");    // requis
-			c.setDoOutput(true);
-			
-			try (OutputStream os = c.getOutputStream()) { os.write(body); }
-			
-			int http = c.getResponseCode();
-			InputStreamReader isr = null;
-			
-			if (http == 200 && c.getInputStream() != null) {
-				isr = new InputStreamReader(c.getInputStream(), AuthConstants.UTF_8);
-			} else if (c.getErrorStream() != null) {
-				isr = new InputStreamReader(c.getErrorStream(), AuthConstants.UTF_8);
-			}
-			
-			String resp = "";
-			if (isr != null) {
-				try (BufferedReader br = new BufferedReader(isr)) {
-					resp = br.lines().collect(Collectors.joining());
-				}
-			}
-				
-				Logger.log("POST " + url + " → HTTP " + http + " / " + resp);
-				return resp;                       // peut être vide, mais plus de NPE
-				
-		} catch (Exception ex) {
-			Logger.log("postInformations exception : " + ex);
-			return "";
-		}
-	}
-
-
-
-    private String connectToMinecraft(String url, String auth) {
+    /** Retry-After en secondes (la forme date HTTP est ignorée). */
+    private static long retryAfter(Header header) {
+        if (header == null) return -1L;
         try {
-            HttpsURLConnection c = (HttpsURLConnection) new URL(url).openConnection();
-            c.setRequestProperty("Accept", AuthConstants.APP_JSON);
-            c.setRequestProperty("Authorization", auth);
-            c.setRequestProperty("x-xbl-contract-version", "1");
-
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(
-                    c.getResponseCode()==200 ? c.getInputStream() : c.getErrorStream(),
-                    AuthConstants.UTF_8))) {
-                return br.lines().collect(Collectors.joining());
-            }
-        } catch (Exception e) {
-            Logger.log("connectToMinecraft error : " + e.getMessage());
-            return "";
+            return Long.parseLong(header.getValue().trim()) * 1000L;
+        } catch (NumberFormatException e) {
+            return -1L;
         }
     }
 
+    /** Trace la consultation du cache (seulement pour les comptes identifiés). */
+    private static <T> T lookup(String cache, String account, T cached) {
+        if (account != null) Metrics.get().cacheLookup(cache, cached != null);
+        return cached;
+    }
+
     /*────────────────── JSON bodies Xbox / XSTS / MC ──────────────────*/
+    private static HttpEntity bodyOf(ParamType param, String p1, String p2) {
+        switch (param) {
+            case XBL:  return XBL_BODY.entity(p1);
+            case XSTS: return XSTS_BODY.entity(p1);
+            case MC:   return MC_BODY.entity(p1, p2);
+            default:   throw new IllegalArgumentException("Seuls XBL, XSTS ou MC sont valides.");
+        }
+    }
+
+    /**
+     * Paramètres sous forme de Map.
+     * @deprecated Les requêtes utilisent désormais des {@link RequestTemplate} précompilés.
+     */
+    @Deprecated
     protected Map<Object,Object> getAuthParameters(ParamType param, String p1, String p2) {
         Map<Object,Object> m = new HashMap<>();
 
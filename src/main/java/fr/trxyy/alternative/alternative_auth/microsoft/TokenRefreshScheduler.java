@@ -0,0 +1,233 @@
+package fr.trxyy.alternative.alternative_auth.microsoft;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import fr.trxyy.alternative.alternative_auth.account.Session;
+import fr.trxyy.alternative.alternative_auth.base.Futures;
+import fr.trxyy.alternative.alternative_auth.base.Logger;
+import fr.trxyy.alternative.alternative_auth.microsoft.XboxTokenCache.Layer;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MicrosoftModel;
+
+/**
+ * Refresh proactif, hors du chemin critique, des comptes connus.
+ *
+ * Pour chaque compte suivi, le scheduler surveille l'échéance de l'access token
+ * Microsoft (obtained_at + expires_in) et celle du token Minecraft (cache Xbox),
+ * et relance la chaîne {@code leadTime} avant la première des deux, moins un
+ * jitter aléatoire pour étaler les refresh de nombreux comptes.
+ *
+ * Au lancement du jeu, {@link #getSession(String)} renvoie alors une session
+ * valide sans aucun appel réseau.
+ */
+public class TokenRefreshScheduler {
+
+    public static final long DEFAULT_LEAD_TIME_MS = TimeUnit.MINUTES.toMillis(10);
+    public static final long DEFAULT_MAX_JITTER_MS = TimeUnit.MINUTES.toMillis(3);
+
+    private static final long MIN_DELAY_MS = TimeUnit.SECONDS.toMillis(1);
+    private static final long RETRY_BASE_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final long RETRY_MAX_MS = TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * Notifié après chaque refresh proactif (depuis un thread du pool).
+     */
+    public interface RefreshListener {
+        /**
+         * @param tokens Les nouveaux tokens Microsoft (à persister : le refresh_token a pu tourner)
+         * @param session La session Minecraft, ou {@code null} si seuls les tokens ont été renouvelés
+         */
+        void onRefreshed(String account, MicrosoftModel tokens, Session session);
+
+        /**
+         * Appelé dès l'échange du refresh_token, avant la chaîne Minecraft : l'ancien
+         * refresh_token est consommé, les nouveaux tokens doivent être persistés même
+         * si la suite échoue. Par défaut : {@code onRefreshed(account, tokens, null)}.
+         */
+        default void onTokensRenewed(String account, MicrosoftModel tokens) {
+            onRefreshed(account, tokens, null);
+        }
+
+        default void onRefreshFailed(String account, Throwable error) {}
+    }
+
+    private final ConcurrentHashMap<String, TrackedAccount> accounts = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor timer;
+    private final Executor executor;
+    private final MicrosoftOAuthClient oauth;
+    private final MicrosoftXboxAuth xbox;
+    private final XboxTokenCache cache;
+    private final long leadTime;
+    private final long maxJitter;
+
+    public TokenRefreshScheduler() {
+        this(DEFAULT_LEAD_TIME_MS, DEFAULT_MAX_JITTER_MS, Futures.defaultExecutor());
+    }
+
+    /**
+     * @param leadTime Avance sur l'échéance (ms)
+     * @param maxJitter Avance aléatoire supplémentaire maximale (ms)
+     * @param executor Exécute les appels réseau ; le timer ne fait que planifier
+     */
+    public TokenRefreshScheduler(long leadTime, long maxJitter, Executor executor) {
+        this(leadTime, maxJitter, executor, new MicrosoftOAuthClient(), XboxTokenCache.shared());
+    }
+
+    public TokenRefreshScheduler(long leadTime, long maxJitter, Executor executor,
+            MicrosoftOAuthClient oauth, XboxTokenCache cache) {
+        this.leadTime = leadTime;
+        this.maxJitter = maxJitter;
+        this.executor = executor;
+        this.oauth = oauth;
+        this.cache = cache;
+        this.xbox = new MicrosoftXboxAuth(cache);
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "AAuth-refresh-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /*──────────────────── Suivi des comptes ────────────────────*/
+
+    /**
+     * Commence (ou reprend) le suivi d'un compte.
+     * @param tokens Tokens Microsoft courants (obtained_at requis pour anticiper l'échéance)
+     * @param listener Reçoit les tokens renouvelés, typiquement pour les persister
+     */
+    public void track(String account, MicrosoftModel tokens, RefreshListener listener) {
+        TrackedAccount tracked = new TrackedAccount(account, tokens, listener);
+        TrackedAccount previous = this.accounts.put(account, tracked);
+        if (previous != null) previous.cancel();
+        schedule(tracked, nextDelay(tracked));
+    }
+
+    public void untrack(String account) {
+        TrackedAccount tracked = this.accounts.remove(account);
+        if (tracked != null) tracked.cancel();
+    }
+
+    public boolean isTracked(String account) {
+        return this.accounts.containsKey(account);
+    }
+
+    /**
+     * @return Une session encore valide pour ce compte, sans appel réseau, ou null
+     */
+    public Session getSession(String account) {
+        Session cached = this.cache.getMinecraftSession(account);
+        return cached == null ? null : cached.copy();
+    }
+
+    /**
+     * @return Les derniers tokens Microsoft connus pour ce compte, ou null
+     */
+    public MicrosoftModel getTokens(String account) {
+        TrackedAccount tracked = this.accounts.get(account);
+        return tracked == null ? null : tracked.tokens;
+    }
+
+    /** Arrête le timer ; les refresh en cours se terminent. */
+    public void shutdown() {
+        for (TrackedAccount tracked : this.accounts.values()) tracked.cancel();
+        this.accounts.clear();
+        this.timer.shutdownNow();
+    }
+
+    /*──────────────────── Planification ────────────────────*/
+
+    private long nextDelay(TrackedAccount tracked) {
+        long now = System.currentTimeMillis();
+        long msExpiry = tracked.tokens.getExpiresAt();
+        long mcExpiry = this.cache.getExpiresAt(tracked.account, Layer.MINECRAFT);
+
+        long due = Long.MAX_VALUE;
+        if (msExpiry > 0) due = Math.min(due, msExpiry);
+        if (mcExpiry > 0) due = Math.min(due, mcExpiry);
+        if (due == Long.MAX_VALUE) {
+            return MIN_DELAY_MS;                // échéance inconnue : on rafraîchit tout de suite
+        }
+        long jitter = this.maxJitter > 0 ? ThreadLocalRandom.current().nextLong(this.maxJitter) : 0L;
+        return Math.max(MIN_DELAY_MS, due - this.leadTime - jitter - now);
+    }
+
+    private void schedule(TrackedAccount tracked, long delay) {
+        if (this.timer.isShutdown()) return;
+        tracked.pending = this.timer.schedule(
+                () -> this.executor.execute(() -> refresh(tracked)),
+                delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void refresh(TrackedAccount tracked) {
+        if (this.accounts.get(tracked.account) != tracked) return;  // remplacé ou retiré entretemps
+        long horizon = System.currentTimeMillis() + this.leadTime + this.maxJitter;
+        try {
+            MicrosoftModel tokens = tracked.tokens;
+            if (tokens.getExpiresAt() == 0L || tokens.getExpiresAt() <= horizon) {
+                tokens = this.oauth.refreshWithToken(tokens.getRefresh_token());
+                tracked.tokens = tokens;
+                notifyRenewed(tracked, tokens);
+            }
+            long mcExpiry = this.cache.getExpiresAt(tracked.account, Layer.MINECRAFT);
+            if (mcExpiry <= horizon) {
+                this.cache.invalidate(tracked.account, Layer.MINECRAFT);
+            }
+            Session session = this.xbox.getLiveToken(tracked.account, tokens.getAccess_token());
+
+            tracked.failures = 0;
+            notifyRefreshed(tracked, tokens, session);
+            schedule(tracked, nextDelay(tracked));
+        } catch (Exception ex) {
+            tracked.failures++;
+            long backoff = Math.min(RETRY_MAX_MS, RETRY_BASE_MS << Math.min(tracked.failures - 1, 10));
+            Logger.warn("Refresh proactif échoué pour {} (nouvel essai dans {} s) : {}",
+                    tracked.account, TimeUnit.MILLISECONDS.toSeconds(backoff), ex.getMessage());
+            try {
+                tracked.listener.onRefreshFailed(tracked.account, ex);
+            } catch (RuntimeException listenerError) {
+                Logger.error("RefreshListener : {}", listenerError);
+            }
+            schedule(tracked, backoff);
+        }
+    }
+
+    private static void notifyRenewed(TrackedAccount tracked, MicrosoftModel tokens) {
+        try {
+            tracked.listener.onTokensRenewed(tracked.account, tokens);
+        } catch (RuntimeException listenerError) {
+            Logger.error("RefreshListener : {}", listenerError);
+        }
+    }
+
+    private static void notifyRefreshed(TrackedAccount tracked, MicrosoftModel tokens, Session session) {
+        try {
+            tracked.listener.onRefreshed(tracked.account, tokens, session);
+        } catch (RuntimeException listenerError) {
+            Logger.error("RefreshListener : {}", listenerError);
+        }
+    }
+
+    private static final class TrackedAccount {
+        final String account;
+        final RefreshListener listener;
+        volatile MicrosoftModel tokens;
+        volatile ScheduledFuture<?> pending;
+        int failures;
+
+        TrackedAccount(String account, MicrosoftModel tokens, RefreshListener listener) {
+            this.account = account;
+            this.tokens = tokens;
+            this.listener = listener;
+        }
+
+        void cancel() {
+            ScheduledFuture<?> p = this.pending;
+            if (p != null) p.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package fr.trxyy.alternative.alternative_auth.microsoft;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import fr.trxyy.alternative.alternative_auth.account.Session;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.XboxLiveModel;
+
+/**
+ * Cache en couches des jetons intermédiaires de la chaîne Xbox, par compte.
+ *
+ * Couches (de la plus durable à la plus courte) :
+ *   • XBL       : user token de user.auth.xboxlive.com (NotAfter, ~14 jours)
+ *   • XSTS      : jeton XSTS (NotAfter, ~16 heures)
+ *   • MINECRAFT : access token Minecraft + profil résolu (expires_in, ~24 heures)
+ *
+ * Chaque couche est considérée expirée {@code safetyMargin} avant son échéance réelle,
+ * ce qui permet à {@link MicrosoftXboxAuth} de reprendre la chaîne directement au
+ * premier hop dont le jeton n'est plus valide.
+ */
+public class XboxTokenCache {
+
+    public static final long DEFAULT_SAFETY_MARGIN_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final XboxTokenCache SHARED = new XboxTokenCache(DEFAULT_SAFETY_MARGIN_MS);
+
+    public enum Layer { XBL, XSTS, MINECRAFT }
+
+    private final ConcurrentHashMap<String, AccountTokens> accounts = new ConcurrentHashMap<>();
+    private volatile long safetyMarginMillis;
+
+    public XboxTokenCache(long safetyMarginMillis) {
+        this.safetyMarginMillis = safetyMarginMillis;
+    }
+
+    /** @return Le cache partagé utilisé par défaut par {@link MicrosoftXboxAuth}. */
+    public static XboxTokenCache shared() {
+        return SHARED;
+    }
+
+    public void setSafetyMargin(long millis) {
+        this.safetyMarginMillis = millis;
+    }
+
+    public long getSafetyMargin() {
+        return this.safetyMarginMillis;
+    }
+
+    /*──────────────────── Lecture ────────────────────*/
+
+    public XboxLiveModel getUserToken(String account) {
+        return valid(account, Layer.XBL);
+    }
+
+    public XboxLiveModel getXstsToken(String account) {
+        return valid(account, Layer.XSTS);
+    }
+
+    public Session getMinecraftSession(String account) {
+        return valid(account, Layer.MINECRAFT);
+    }
+
+    /**
+     * @return L'échéance réelle (epoch millis, sans marge) de la couche, ou 0 si absente
+     */
+    public long getExpiresAt(String account, Layer layer) {
+        AccountTokens tokens = account == null ? null : this.accounts.get(account);
+        CachedToken cached = tokens == null ? null : tokens.slots.get(layer.ordinal());
+        return cached == null ? 0L : cached.expiresAt;
+    }
+
+    /*──────────────────── Écriture ────────────────────*/
+
+    public void putUserToken(String account, XboxLiveModel xbl) {
+        put(account, Layer.XBL, xbl, parseNotAfter(xbl.getNotAfter()));
+    }
+
+    public void putXstsToken(String account, XboxLiveModel xsts) {
+        put(account, Layer.XSTS, xsts, parseNotAfter(xsts.getNotAfter()));
+    }
+
+    /**
+     * @param expiresIn Durée de validité du jeton Minecraft, en secondes
+     */
+    public void putMinecraftSession(String account, Session session, long expiresIn) {
+        put(account, Layer.MINECRAFT, session, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(expiresIn));
+    }
+
+    /*──────────────────── Invalidation ────────────────────*/
+
+    public void invalidate(String account) {
+        if (account != null) this.accounts.remove(account);
+    }
+
+    public void invalidate(String account, Layer layer) {
+        AccountTokens tokens = account == null ? null : this.accounts.get(account);
+        if (tokens != null) tokens.slots.set(layer.ordinal(), null);
+    }
+
+    public void clear() {
+        this.accounts.clear();
+    }
+
+    /**
+     * Range les jetons d'un compte sous une autre clé (ex. la clé provisoire
+     * d'une connexion, une fois l'identité du compte connue). Les jetons
+     * déjà rangés sous {@code to} sont remplacés.
+     */
+    public void rename(String from, String to) {
+        if (from == null || to == null || from.equals(to)) return;
+        AccountTokens tokens = this.accounts.remove(from);
+        if (tokens != null) this.accounts.put(to, tokens);
+        else this.accounts.remove(to);
+    }
+
+    /*──────────────────── Interne ────────────────────*/
+
+    @SuppressWarnings("unchecked")
+    private <T> T valid(String account, Layer layer) {
+        if (account == null) return null;
+        AccountTokens tokens = this.accounts.get(account);
+        if (tokens == null) return null;
+        CachedToken cached = tokens.slots.get(layer.ordinal());
+        if (cached == null) return null;
+        if (System.currentTimeMillis() + this.safetyMarginMillis >= cached.expiresAt) {
+            tokens.slots.compareAndSet(layer.ordinal(), cached, null);
+            return null;
+        }
+        return (T) cached.value;
+    }
+
+    private void put(String account, Layer layer, Object value, long expiresAt) {
+        if (account == null || expiresAt <= 0L) return;
+        this.accounts.computeIfAbsent(account, k -> new AccountTokens()).slots
+                .set(layer.ordinal(), new CachedToken(value, expiresAt));
+    }
+
+    /** NotAfter Xbox : ISO-8601 avec 7 décimales, ex. 2024-05-01T12:34:56.1234567Z */
+    static long parseNotAfter(String notAfter) {
+        if (notAfter == null) return 0L;
+        try {
+            return Instant.parse(notAfter).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0L;
+        }
+    }
+
+    private static final class AccountTokens {
+        final AtomicReferenceArray<CachedToken> slots = new AtomicReferenceArray<>(Layer.values().length);
+    }
+
+    private static final class CachedToken {
+        final Object value;
+        final long expiresAt;
+
+        CachedToken(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
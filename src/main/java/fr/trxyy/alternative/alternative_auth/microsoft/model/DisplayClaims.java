@@ -7,6 +7,8 @@ public class DisplayClaims {
 		return xui;
 	}
 	
+	public DisplayClaims() {}
+
 	public DisplayClaims(DisplayClaims o) {
 		if (o.xui != null) {
 			this.xui = o.xui;
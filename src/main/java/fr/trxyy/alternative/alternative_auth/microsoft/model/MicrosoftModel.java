@@ -9,6 +9,8 @@ public class MicrosoftModel {
 	public String token_type;
 	public String expires_in;
 	public String foci;
+	/** Epoch (secondes) de réception des tokens, pour exploiter expires_in */
+	public String obtained_at;
 	
 	public String getAccess_token() {
 		return access_token;
@@ -31,5 +33,26 @@ public class MicrosoftModel {
 	public String getFoci() {
 		return foci;
 	}
+	public String getObtained_at() {
+		return obtained_at;
+	}
+	
+	/**
+	 * Marque les tokens comme reçus maintenant.
+	 */
+	public void markObtained() {
+		this.obtained_at = Long.toString(System.currentTimeMillis() / 1000L);
+	}
+	
+	/**
+	 * @return L'échéance de l'access token en epoch millis, ou 0 si inconnue
+	 */
+	public long getExpiresAt() {
+		try {
+			return (Long.parseLong(obtained_at) + Long.parseLong(expires_in)) * 1000L;
+		} catch (NumberFormatException e) {
+			return 0L;
+		}
+	}
 	
 }
@@ -5,6 +5,7 @@ public class MinecraftProfileModel {
 	public String id;
 	public String name;
 	public MinecraftSkin[] skins;
+	public MinecraftSkin[] capes;
 	
 	public String path;
 	public String errorType;
@@ -12,6 +13,8 @@ public class MinecraftProfileModel {
 	public String errorMessage;
 	public String developerMessage;
 
+	public MinecraftProfileModel() {}
+
 	public MinecraftProfileModel(MinecraftProfileModel o) {
 		if (o.id != null) {
 			this.id = o.id;
@@ -22,6 +25,9 @@ public class MinecraftProfileModel {
 		if (o.skins != null) {
 			this.skins = o.skins;
 		}
+		if (o.capes != null) {
+			this.capes = o.capes;
+		}
 	}
 
 	public String getId() {
@@ -36,4 +42,8 @@ public class MinecraftProfileModel {
 		return skins;
 	}
 
+	public MinecraftSkin[] getCapes() {
+		return capes;
+	}
+
 }
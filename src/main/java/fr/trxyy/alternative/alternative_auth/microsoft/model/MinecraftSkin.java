@@ -7,6 +7,8 @@ public class MinecraftSkin {
 	public String variant;
 	public String alias;
 
+	public MinecraftSkin() {}
+
 	public MinecraftSkin(MinecraftSkin o) {
 		if (o.id != null) {
 			this.id = o.id;
@@ -6,6 +6,8 @@ public class MinecraftStoreModel {
 	public String signature;
 	public String keyId;
 
+	public MinecraftStoreModel() {}
+
 	public MinecraftStoreModel(MinecraftStoreModel o) {
 		if (o.items != null) {
 			this.items = o.items;
@@ -0,0 +1,347 @@
+package fr.trxyy.alternative.alternative_auth.microsoft.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * TypeAdapters écrits à la main pour les modèles de la chaîne Microsoft :
+ * aucune réflexion, lecture champ par champ, champs inconnus ignorés.
+ */
+public class ModelTypeAdapters {
+
+	/**
+	 * Enregistre tous les adapters sur le builder.
+	 * @param builder Le GsonBuilder
+	 * @return Le même builder
+	 */
+	public static GsonBuilder register(GsonBuilder builder) {
+		return builder
+				.registerTypeAdapter(MicrosoftModel.class, new MicrosoftModelAdapter().nullSafe())
+				.registerTypeAdapter(XboxLiveModel.class, new XboxLiveModelAdapter().nullSafe())
+				.registerTypeAdapter(MinecraftMicrosoftModel.class, new MinecraftMicrosoftModelAdapter().nullSafe())
+				.registerTypeAdapter(MinecraftProfileModel.class, new MinecraftProfileModelAdapter().nullSafe())
+				.registerTypeAdapter(MinecraftStoreModel.class, new MinecraftStoreModelAdapter().nullSafe());
+	}
+
+	/*──────────────────── MicrosoftModel ────────────────────*/
+
+	static final class MicrosoftModelAdapter extends TypeAdapter<MicrosoftModel> {
+		@Override
+		public void write(JsonWriter out, MicrosoftModel m) throws IOException {
+			out.beginObject();
+			out.name("access_token").value(m.access_token);
+			out.name("refresh_token").value(m.refresh_token);
+			out.name("user_id").value(m.user_id);
+			out.name("scope").value(m.scope);
+			out.name("token_type").value(m.token_type);
+			out.name("expires_in").value(m.expires_in);
+			out.name("foci").value(m.foci);
+			out.name("obtained_at").value(m.obtained_at);
+			out.endObject();
+		}
+
+		@Override
+		public MicrosoftModel read(JsonReader in) throws IOException {
+			MicrosoftModel m = new MicrosoftModel();
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+				case "access_token":  m.access_token = readString(in); break;
+				case "refresh_token": m.refresh_token = readString(in); break;
+				case "user_id":       m.user_id = readString(in); break;
+				case "scope":         m.scope = readString(in); break;
+				case "token_type":    m.token_type = readString(in); break;
+				case "expires_in":    m.expires_in = readString(in); break;
+				case "foci":          m.foci = readString(in); break;
+				case "obtained_at":   m.obtained_at = readString(in); break;
+				default:              in.skipValue();
+				}
+			}
+			in.endObject();
+			return m;
+		}
+	}
+
+	/*──────────────────── XboxLiveModel (XBL / XSTS) ────────────────────*/
+
+	static final class XboxLiveModelAdapter extends TypeAdapter<XboxLiveModel> {
+		@Override
+		public void write(JsonWriter out, XboxLiveModel m) throws IOException {
+			out.beginObject();
+			out.name("IssueInstant").value(m.IssueInstant);
+			out.name("NotAfter").value(m.NotAfter);
+			out.name("Token").value(m.Token);
+			if (m.DisplayClaims != null) {
+				out.name("DisplayClaims").beginObject();
+				if (m.DisplayClaims.xui != null) {
+					out.name("xui").beginArray();
+					for (Xui x : m.DisplayClaims.xui) {
+						out.beginObject().name("uhs").value(x.uhs).endObject();
+					}
+					out.endArray();
+				}
+				out.endObject();
+			}
+			out.endObject();
+		}
+
+		@Override
+		public XboxLiveModel read(JsonReader in) throws IOException {
+			XboxLiveModel m = new XboxLiveModel();
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+				case "IssueInstant":  m.IssueInstant = readString(in); break;
+				case "NotAfter":      m.NotAfter = readString(in); break;
+				case "Token":         m.Token = readString(in); break;
+				case "DisplayClaims": m.DisplayClaims = readDisplayClaims(in); break;
+				default:              in.skipValue();
+				}
+			}
+			in.endObject();
+			return m;
+		}
+
+		private static DisplayClaims readDisplayClaims(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			DisplayClaims claims = new DisplayClaims();
+			in.beginObject();
+			while (in.hasNext()) {
+				if ("xui".equals(in.nextName()) && in.peek() == JsonToken.BEGIN_ARRAY) {
+					List<Xui> users = new ArrayList<>(1);
+					in.beginArray();
+					while (in.hasNext()) {
+						Xui x = new Xui();
+						in.beginObject();
+						while (in.hasNext()) {
+							if ("uhs".equals(in.nextName())) x.uhs = readString(in);
+							else in.skipValue();
+						}
+						in.endObject();
+						users.add(x);
+					}
+					in.endArray();
+					claims.xui = users.toArray(new Xui[0]);
+				} else {
+					in.skipValue();
+				}
+			}
+			in.endObject();
+			return claims;
+		}
+	}
+
+	/*──────────────────── MinecraftMicrosoftModel (login_with_xbox) ────────────────────*/
+
+	static final class MinecraftMicrosoftModelAdapter extends TypeAdapter<MinecraftMicrosoftModel> {
+		@Override
+		public void write(JsonWriter out, MinecraftMicrosoftModel m) throws IOException {
+			out.beginObject();
+			out.name("username").value(m.username);
+			out.name("access_token").value(m.access_token);
+			out.name("token_type").value(m.token_type);
+			out.name("expires_in").value(m.expires_in);
+			out.endObject();
+		}
+
+		@Override
+		public MinecraftMicrosoftModel read(JsonReader in) throws IOException {
+			MinecraftMicrosoftModel m = new MinecraftMicrosoftModel();
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+				case "username":     m.username = readString(in); break;
+				case "access_token": m.access_token = readString(in); break;
+				case "token_type":   m.token_type = readString(in); break;
+				case "expires_in":   m.expires_in = readLong(in); break;
+				default:             in.skipValue();
+				}
+			}
+			in.endObject();
+			return m;
+		}
+	}
+
+	/*──────────────────── MinecraftProfileModel ────────────────────*/
+
+	static final class MinecraftProfileModelAdapter extends TypeAdapter<MinecraftProfileModel> {
+		@Override
+		public void write(JsonWriter out, MinecraftProfileModel m) throws IOException {
+			out.beginObject();
+			out.name("id").value(m.id);
+			out.name("name").value(m.name);
+			writeSkins(out, "skins", m.skins);
+			writeSkins(out, "capes", m.capes);
+			out.name("path").value(m.path);
+			out.name("errorType").value(m.errorType);
+			out.name("error").value(m.error);
+			out.name("errorMessage").value(m.errorMessage);
+			out.name("developerMessage").value(m.developerMessage);
+			out.endObject();
+		}
+
+		@Override
+		public MinecraftProfileModel read(JsonReader in) throws IOException {
+			MinecraftProfileModel m = new MinecraftProfileModel();
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+				case "id":               m.id = readString(in); break;
+				case "name":             m.name = readString(in); break;
+				case "skins":            m.skins = readSkins(in); break;
+				case "capes":            m.capes = readSkins(in); break;
+				case "path":             m.path = readString(in); break;
+				case "errorType":        m.errorType = readString(in); break;
+				case "error":            m.error = readString(in); break;
+				case "errorMessage":     m.errorMessage = readString(in); break;
+				case "developerMessage": m.developerMessage = readString(in); break;
+				default:                 in.skipValue();
+				}
+			}
+			in.endObject();
+			return m;
+		}
+
+		private static void writeSkins(JsonWriter out, String name, MinecraftSkin[] skins) throws IOException {
+			if (skins == null) return;
+			out.name(name).beginArray();
+			for (MinecraftSkin skin : skins) {
+				out.beginObject();
+				out.name("id").value(skin.id);
+				out.name("state").value(skin.state);
+				out.name("url").value(skin.url);
+				out.name("variant").value(skin.variant);
+				out.name("alias").value(skin.alias);
+				out.endObject();
+			}
+			out.endArray();
+		}
+
+		private static MinecraftSkin[] readSkins(JsonReader in) throws IOException {
+			if (in.peek() != JsonToken.BEGIN_ARRAY) {
+				in.skipValue();
+				return null;
+			}
+			List<MinecraftSkin> skins = new ArrayList<>(1);
+			in.beginArray();
+			while (in.hasNext()) {
+				MinecraftSkin skin = new MinecraftSkin();
+				in.beginObject();
+				while (in.hasNext()) {
+					switch (in.nextName()) {
+					case "id":      skin.id = readString(in); break;
+					case "state":   skin.state = readString(in); break;
+					case "url":     skin.url = readString(in); break;
+					case "variant": skin.variant = readString(in); break;
+					case "alias":   skin.alias = readString(in); break;
+					default:        in.skipValue();
+					}
+				}
+				in.endObject();
+				skins.add(skin);
+			}
+			in.endArray();
+			return skins.toArray(new MinecraftSkin[0]);
+		}
+	}
+
+	/*──────────────────── MinecraftStoreModel (entitlements) ────────────────────*/
+
+	static final class MinecraftStoreModelAdapter extends TypeAdapter<MinecraftStoreModel> {
+		@Override
+		public void write(JsonWriter out, MinecraftStoreModel m) throws IOException {
+			out.beginObject();
+			if (m.items != null) {
+				out.name("items").beginArray();
+				for (StoreItem item : m.items) {
+					out.beginObject();
+					out.name("name").value(item.name);
+					out.name("signature").value(item.signature);
+					out.endObject();
+				}
+				out.endArray();
+			}
+			out.name("signature").value(m.signature);
+			out.name("keyId").value(m.keyId);
+			out.endObject();
+		}
+
+		@Override
+		public MinecraftStoreModel read(JsonReader in) throws IOException {
+			MinecraftStoreModel m = new MinecraftStoreModel();
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+				case "items":     m.items = readItems(in); break;
+				case "signature": m.signature = readString(in); break;
+				case "keyId":     m.keyId = readString(in); break;
+				default:          in.skipValue();
+				}
+			}
+			in.endObject();
+			return m;
+		}
+
+		private static StoreItem[] readItems(JsonReader in) throws IOException {
+			if (in.peek() != JsonToken.BEGIN_ARRAY) {
+				in.skipValue();
+				return null;
+			}
+			List<StoreItem> items = new ArrayList<>(2);
+			in.beginArray();
+			while (in.hasNext()) {
+				StoreItem item = new StoreItem();
+				in.beginObject();
+				while (in.hasNext()) {
+					switch (in.nextName()) {
+					case "name":      item.name = readString(in); break;
+					case "signature": item.signature = readString(in); break;
+					default:          in.skipValue();
+					}
+				}
+				in.endObject();
+				items.add(item);
+			}
+			in.endArray();
+			return items.toArray(new StoreItem[0]);
+		}
+	}
+
+	/*──────────────────── Helpers ────────────────────*/
+
+	/** Chaîne, nombre ou booléen lus comme String ; objets et tableaux ignorés. */
+	private static String readString(JsonReader in) throws IOException {
+		switch (in.peek()) {
+		case NULL:
+			in.nextNull();
+			return null;
+		case BOOLEAN:
+			return String.valueOf(in.nextBoolean());
+		case STRING:
+		case NUMBER:
+			return in.nextString();
+		default:
+			in.skipValue();
+			return null;
+		}
+	}
+
+	private static long readLong(JsonReader in) throws IOException {
+		JsonToken token = in.peek();
+		if (token == JsonToken.NUMBER || token == JsonToken.STRING) {
+			return in.nextLong();
+		}
+		in.skipValue();
+		return 0L;
+	}
+}
@@ -5,6 +5,8 @@ public class StoreItem {
 	public String name;
 	public String signature;
 
+	public StoreItem() {}
+
 	public StoreItem(StoreItem o) {
 		if (o.name != null) {
 			this.name = o.name;
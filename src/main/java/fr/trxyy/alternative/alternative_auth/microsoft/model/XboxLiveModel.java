@@ -7,6 +7,8 @@ public class XboxLiveModel {
 	public String Token;
 	public DisplayClaims DisplayClaims;
 	
+	public XboxLiveModel() {}
+
 	public XboxLiveModel(XboxLiveModel o) {
 		if (o.IssueInstant != null) {
 			this.IssueInstant = o.IssueInstant;
@@ -3,6 +3,8 @@ package fr.trxyy.alternative.alternative_auth.microsoft.model;
 public class Xui {
 	public String uhs;
 	
+	public Xui() {}
+
 	public Xui(Xui o) {
 		if (o.uhs != null) {
 			this.uhs = o.uhs;
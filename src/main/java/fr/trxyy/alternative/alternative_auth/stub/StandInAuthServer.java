@@ -0,0 +1,422 @@
+package fr.trxyy.alternative.alternative_auth.stub;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import fr.trxyy.alternative.alternative_auth.base.AuthConstants;
+import fr.trxyy.alternative.alternative_auth.base.AuthEndpoints;
+import fr.trxyy.alternative.alternative_auth.base.AuthEndpoints.Endpoint;
+import fr.trxyy.alternative.alternative_auth.base.Logger;
+
+/**
+ * Serveur local qui imite les endpoints Microsoft / Xbox / Minecraft
+ * (devicecode, authorize + PKCE, token, XBL authenticate, XSTS authorize,
+ * login_with_xbox, mcstore, minecraft/profile) pour les tests de charge.
+ *
+ * Latence, taux d'erreurs 503 et taux de 429 sont réglables. La latence est
+ * simulée sans bloquer de thread : la réponse est planifiée, ce qui permet de
+ * tenir des milliers de connexions simultanées sur une seule machine.
+ *
+ * Utilisation :
+ * <pre>
+ *   java -cp alternative-auth.jar fr.trxyy.alternative.alternative_auth.stub.StandInAuthServer -p 8089 -l 40-120 -e 0.01 -t 0.02
+ *   java -Dalternative.auth.baseUrl=http://127.0.0.1:8089 ... (côté launcher)
+ * </pre>
+ * ou, dans le même processus, {@link #install()}.
+ */
+public class StandInAuthServer implements AutoCloseable {
+
+    static {
+        // sans TCP_NODELAY, l'ACK retardé ajoute ~40 ms par échange keep-alive
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService delays;
+
+    private volatile long minLatency;
+    private volatile long maxLatency;
+    private volatile double errorRate;
+    private volatile double throttleRate;
+    private volatile int retryAfter = 1;
+    private volatile int pollInterval = 5;
+    private volatile int pendingPolls;
+
+    private final Map<String, AtomicInteger> polls = new ConcurrentHashMap<>();
+    /** Codes d'autorisation émis → code_challenge attendu à l'échange. */
+    private final Map<String, String> authorizationCodes = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    /** Serveur sur 127.0.0.1, port libre choisi par le système. */
+    public StandInAuthServer() throws IOException {
+        this("127.0.0.1", 0, Math.max(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param port Port d'écoute (0 = port libre)
+     * @param threads Threads de lecture des requêtes
+     */
+    public StandInAuthServer(String host, int port, int threads) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 4096);
+        this.workers = Executors.newFixedThreadPool(threads, daemon("AAuth-standin"));
+        this.delays = Executors.newScheduledThreadPool(2, daemon("AAuth-standin-delay"));
+
+        route(Endpoint.DEVICE_CODE, this::deviceCode);
+        route(Endpoint.AUTHORIZE, this::authorize);
+        route(Endpoint.TOKEN, this::token);
+        route(Endpoint.LIVE_TOKEN, this::token);
+        route(Endpoint.XBL_AUTHENTICATE, this::xboxToken);
+        route(Endpoint.XSTS_AUTHORIZE, this::xboxToken);
+        route(Endpoint.LOGIN_WITH_XBOX, this::loginWithXbox);
+        route(Endpoint.MINECRAFT_STORE, this::store);
+        route(Endpoint.MINECRAFT_PROFILE, this::profile);
+        this.server.setExecutor(this.workers);
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    /** Redirige tous les endpoints de la librairie vers ce serveur. */
+    public void install() {
+        AuthEndpoints.setBaseUrl(getBaseUrl());
+    }
+
+    public String getBaseUrl() {
+        InetSocketAddress address = this.server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.delays.shutdownNow();
+        this.workers.shutdownNow();
+    }
+
+    /*──────────────────── Réglages ────────────────────*/
+
+    /** Latence uniforme entre {@code min} et {@code max} ms, ajoutée à chaque réponse. */
+    public void setLatency(long min, long max) {
+        this.minLatency = Math.max(0, min);
+        this.maxLatency = Math.max(this.minLatency, max);
+    }
+
+    /** Part des requêtes (0..1) qui reçoivent un 503. */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /** Part des requêtes (0..1) qui reçoivent un 429 avec Retry-After. */
+    public void setThrottleRate(double throttleRate) {
+        this.throttleRate = throttleRate;
+    }
+
+    public void setRetryAfter(int seconds) {
+        this.retryAfter = seconds;
+    }
+
+    /** Intervalle de polling annoncé dans la réponse devicecode (s). */
+    public void setPollInterval(int seconds) {
+        this.pollInterval = seconds;
+    }
+
+    /** Nombre de réponses authorization_pending avant de délivrer le token d'un device code. */
+    public void setPendingPolls(int pendingPolls) {
+        this.pendingPolls = pendingPolls;
+    }
+
+    public long getRequestCount()   { return this.requests.get(); }
+    public long getErrorCount()     { return this.errors.get(); }
+    public long getThrottledCount() { return this.throttled.get(); }
+
+    /*──────────────────── Routage ────────────────────*/
+
+    private interface Route {
+        Reply handle(HttpExchange exchange, Map<String, String> form);
+    }
+
+    private static final class Reply {
+        final int status;
+        final String body;
+
+        Reply(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private void route(Endpoint endpoint, Route route) {
+        this.server.createContext(endpoint.getPath(), exchange -> {
+            this.requests.incrementAndGet();
+            Map<String, String> form = parseForm(readBody(exchange));
+
+            Reply reply;
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < this.throttleRate) {
+                this.throttled.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(this.retryAfter));
+                reply = new Reply(429, "{\"error\":\"TooManyRequests\"}");
+            } else if (roll < this.throttleRate + this.errorRate) {
+                this.errors.incrementAndGet();
+                reply = new Reply(503, "{\"error\":\"ServiceUnavailable\"}");
+            } else {
+                reply = route.handle(exchange, form);
+            }
+
+            long delay = nextLatency();
+            if (delay <= 0) {
+                send(exchange, reply);
+            } else {
+                // la réponse part plus tard, le thread de lecture est libéré tout de suite
+                this.delays.schedule(() -> send(exchange, reply), delay, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    private long nextLatency() {
+        long min = this.minLatency, max = this.maxLatency;
+        return max <= min ? min : ThreadLocalRandom.current().nextLong(min, max + 1);
+    }
+
+    private static void send(HttpExchange exchange, Reply reply) {
+        byte[] bytes = reply.body.getBytes(AuthConstants.UTF_8);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", AuthConstants.APP_JSON);
+            exchange.sendResponseHeaders(reply.status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            exchange.close();                       // client parti entretemps
+        }
+    }
+
+    /*──────────────────── Endpoints ────────────────────*/
+
+    private Reply deviceCode(HttpExchange exchange, Map<String, String> form) {
+        String code = UUID.randomUUID().toString();
+        return new Reply(200, "{\"user_code\":\"" + code.substring(0, 8).toUpperCase() + "\","
+                + "\"device_code\":\"" + code + "\","
+                + "\"verification_uri\":\"https://www.microsoft.com/link\","
+                + "\"expires_in\":900,\"interval\":" + this.pollInterval + ","
+                + "\"message\":\"To sign in, use a web browser to open the page https://www.microsoft.com/link\"}");
+    }
+
+    /** Connexion acceptée d'office : redirection immédiate vers le redirect_uri avec un code. */
+    private Reply authorize(HttpExchange exchange, Map<String, String> form) {
+        Map<String, String> query;
+        try {
+            String raw = exchange.getRequestURI().getRawQuery();
+            query = parseForm(raw == null ? "" : raw);
+        } catch (IOException e) {
+            return new Reply(400, "{\"error\":\"invalid_request\"}");
+        }
+        String redirect = query.get("redirect_uri");
+        String challenge = query.get("code_challenge");
+        if (redirect == null || challenge == null || !"S256".equals(query.get("code_challenge_method"))) {
+            return new Reply(400, "{\"error\":\"invalid_request\"}");
+        }
+        String code = "M.C5.code." + UUID.randomUUID();
+        this.authorizationCodes.put(code, challenge);
+        String state = query.get("state");
+        try {
+            exchange.getResponseHeaders().set("Location", redirect + "?code=" + URLEncoder.encode(code, "UTF-8")
+                    + (state != null ? "&state=" + URLEncoder.encode(state, "UTF-8") : ""));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return new Reply(302, "{}");
+    }
+
+    private Reply token(HttpExchange exchange, Map<String, String> form) {
+        if ("authorization_code".equals(form.get("grant_type"))) {
+            // PKCE : code émis par /authorize, utilisable une fois, verifier conforme au challenge
+            String challenge = this.authorizationCodes.remove(String.valueOf(form.get("code")));
+            String verifier = form.get("code_verifier");
+            if (challenge == null || verifier == null || !challenge.equals(s256(verifier))) {
+                return new Reply(400, "{\"error\":\"invalid_grant\","
+                        + "\"error_description\":\"The provided authorization code or code_verifier is invalid.\"}");
+            }
+        }
+        String deviceCode = form.get("device_code");
+        if (deviceCode != null && this.pendingPolls > 0) {
+            AtomicInteger count = this.polls.computeIfAbsent(deviceCode, k -> new AtomicInteger());
+            if (count.incrementAndGet() <= this.pendingPolls) {
+                return new Reply(400, "{\"error\":\"authorization_pending\","
+                        + "\"error_description\":\"The user has not yet completed sign-in.\"}");
+            }
+            this.polls.remove(deviceCode);
+        }
+        return new Reply(200, "{\"token_type\":\"Bearer\",\"scope\":\"XboxLive.signin XboxLive.offline_access\","
+                + "\"expires_in\":3600,\"ext_expires_in\":3600,"
+                + "\"access_token\":\"EwB.standin." + UUID.randomUUID() + "\","
+                + "\"refresh_token\":\"M.C5.standin." + UUID.randomUUID() + "\"}");     // pas de user_id en v2
+    }
+
+    private Reply xboxToken(HttpExchange exchange, Map<String, String> form) {
+        Instant now = Instant.now();
+        return new Reply(200, "{\"IssueInstant\":\"" + now + "\","
+                + "\"NotAfter\":\"" + now.plus(14, ChronoUnit.DAYS) + "\","
+                + "\"Token\":\"eyJ.standin." + UUID.randomUUID() + "\","
+                + "\"DisplayClaims\":{\"xui\":[{\"uhs\":\"2535472455454545\"}]}}");
+    }
+
+    private Reply loginWithXbox(HttpExchange exchange, Map<String, String> form) {
+        return new Reply(200, "{\"username\":\"" + UUID.randomUUID() + "\",\"roles\":[],"
+                + "\"access_token\":\"eyJraWQiOiJhYzg0YSJ9.standin." + UUID.randomUUID() + "\","
+                + "\"expires_in\":86400,\"token_type\":\"Bearer\"}");
+    }
+
+    private Reply store(HttpExchange exchange, Map<String, String> form) {
+        if (exchange.getRequestHeaders().getFirst("Authorization") == null) return unauthorized();
+        return new Reply(200, "{\"items\":[{\"name\":\"product_minecraft\",\"signature\":\"c2ln\"},"
+                + "{\"name\":\"game_minecraft\",\"signature\":\"c2ln\"}],\"signature\":\"c2ln\",\"keyId\":\"1\"}");
+    }
+
+    private Reply profile(HttpExchange exchange, Map<String, String> form) {
+        if (exchange.getRequestHeaders().getFirst("Authorization") == null) return unauthorized();
+        return new Reply(200, "{\"id\":\"069a79f444e94726a5befca90e38aaf5\",\"name\":\"Notch\","
+                + "\"skins\":[{\"id\":\"6a6e65e5-76dd-4c3c-a625-162924514568\",\"state\":\"ACTIVE\","
+                + "\"url\":\"http://textures.minecraft.net/texture/292009a4925b58f02c77dadc3ecef07ea4c7472f64e0fdc32ce5522489362680\","
+                + "\"variant\":\"CLASSIC\"}],\"capes\":[]}");
+    }
+
+    private static Reply unauthorized() {
+        return new Reply(401, "{\"path\":\"/minecraft/profile\",\"errorType\":\"UNAUTHORIZED\"}");
+    }
+
+    /*──────────────────── Helpers ────────────────────*/
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+            byte[] chunk = new byte[1024];
+            int n;
+            while ((n = in.read(chunk)) != -1) {
+                buffer.write(chunk, 0, n);
+            }
+            return new String(buffer.toByteArray(), AuthConstants.UTF_8);
+        }
+    }
+
+    private static Map<String, String> parseForm(String body) throws IOException {
+        Map<String, String> form = new HashMap<>();
+        if (body.isEmpty() || body.charAt(0) == '{') return form;  // corps JSON : non utilisé
+        for (String pair : body.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                form.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+                        URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+            }
+        }
+        return form;
+    }
+
+    private static String s256(String verifier) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(verifier.getBytes(AuthConstants.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /*──────────────────── Ligne de commande ────────────────────*/
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        options.addOption("h", "host", true, "Adresse d'écoute (défaut 127.0.0.1)");
+        options.addOption("p", "port", true, "Port d'écoute (défaut 8089)");
+        options.addOption("w", "threads", true, "Threads de lecture des requêtes");
+        options.addOption("l", "latency", true, "Latence en ms : \"50\" ou \"40-120\"");
+        options.addOption("e", "error-rate", true, "Part de réponses 503 (0..1)");
+        options.addOption("t", "throttle-rate", true, "Part de réponses 429 (0..1)");
+        options.addOption("r", "retry-after", true, "Retry-After des 429 (s)");
+        options.addOption("i", "interval", true, "Intervalle de polling du device flow (s)");
+        options.addOption("n", "pending", true, "Réponses authorization_pending par device code");
+
+        CommandLine cmd;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            new HelpFormatter().printHelp("StandInAuthServer", options);
+            return;
+        }
+
+        StandInAuthServer server = new StandInAuthServer(
+                cmd.getOptionValue("host", "127.0.0.1"),
+                Integer.parseInt(cmd.getOptionValue("port", "8089")),
+                Integer.parseInt(cmd.getOptionValue("threads",
+                        String.valueOf(Math.max(4, Runtime.getRuntime().availableProcessors())))));
+
+        String latency = cmd.getOptionValue("latency", "0");
+        int dash = latency.indexOf('-');
+        if (dash > 0) {
+            server.setLatency(Long.parseLong(latency.substring(0, dash)), Long.parseLong(latency.substring(dash + 1)));
+        } else {
+            server.setLatency(Long.parseLong(latency), Long.parseLong(latency));
+        }
+        server.setErrorRate(Double.parseDouble(cmd.getOptionValue("error-rate", "0")));
+        server.setThrottleRate(Double.parseDouble(cmd.getOptionValue("throttle-rate", "0")));
+        server.setRetryAfter(Integer.parseInt(cmd.getOptionValue("retry-after", "1")));
+        server.setPollInterval(Integer.parseInt(cmd.getOptionValue("interval", "5")));
+        server.setPendingPolls(Integer.parseInt(cmd.getOptionValue("pending", "0")));
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            Logger.log("Stand-in arrêté : " + server.getRequestCount() + " requêtes, "
+                    + server.getErrorCount() + " erreurs 503, " + server.getThrottledCount() + " 429.");
+        }));
+        server.start();
+        Logger.log("Stand-in auth server sur " + server.getBaseUrl() + " (Ctrl+C pour arrêter)");
+        Logger.log("Côté client : -D" + AuthEndpoints.BASE_URL_PROPERTY + "=" + server.getBaseUrl());
+        Thread.currentThread().join();
+    }
+}
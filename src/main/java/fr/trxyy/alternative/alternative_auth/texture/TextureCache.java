@@ -0,0 +1,443 @@
+package fr.trxyy.alternative.alternative_auth.texture;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+
+import fr.trxyy.alternative.alternative_auth.base.AuthConstants;
+import fr.trxyy.alternative.alternative_auth.base.Futures;
+import fr.trxyy.alternative.alternative_auth.base.Logger;
+import fr.trxyy.alternative.alternative_auth.http.HttpStatusException;
+import fr.trxyy.alternative.alternative_auth.http.HttpTransport;
+import fr.trxyy.alternative.alternative_auth.metrics.Hop;
+import fr.trxyy.alternative.alternative_auth.metrics.HopTimer;
+import fr.trxyy.alternative.alternative_auth.metrics.Metrics;
+import fr.trxyy.alternative.alternative_auth.microsoft.model.MinecraftSkin;
+
+/**
+ * Cache disque des textures (skins, capes) du profil Minecraft.
+ *
+ *   • clé = hash de la texture contenu dans l'URL
+ *     ({@code textures.minecraft.net/texture/<hash>}) : une texture déjà vue
+ *     n'est jamais retéléchargée, quel que soit le compte ;
+ *   • taille totale bornée, éviction LRU (ordre conservé d'un lancement à
+ *     l'autre via la date de modification des fichiers) ;
+ *   • les URLs sans hash sont revalidées par requête conditionnelle
+ *     (If-None-Match / If-Modified-Since) après {@link #setRevalidateAfter(long)} ;
+ *   • les textures les plus utilisées sont lues par mapping mémoire ;
+ *   • un même téléchargement n'est fait qu'une fois, même demandé en parallèle.
+ */
+public class TextureCache {
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    /** Taille maximale acceptée pour une texture. */
+    private static final long MAX_TEXTURE_BYTES = 2L * 1024 * 1024;
+    private static final int HOT_SET_SIZE = 64;
+
+    private static final Pattern TEXTURE_HASH = Pattern.compile("[0-9a-fA-F]{32,128}");
+    private static final String DATA_SUFFIX = ".png";
+    private static final String META_SUFFIX = ".meta";
+
+    private final Path directory;
+    private final long maxBytes;
+    private volatile long revalidateAfter = TimeUnit.DAYS.toMillis(7);
+
+    /** Index LRU de ce qui est sur disque (ordre d'accès) ; protégé par lui-même. */
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    /** Textures mappées en mémoire ; protégé par lui-même. */
+    private final LinkedHashMap<String, MappedByteBuffer> hotSet =
+            new LinkedHashMap<String, MappedByteBuffer>(HOT_SET_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, MappedByteBuffer> eldest) {
+                    return size() > HOT_SET_SIZE;
+                }
+            };
+
+    private final ConcurrentHashMap<String, CompletableFuture<ByteBuffer>> inFlight = new ConcurrentHashMap<>();
+
+    public TextureCache(File directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxBytes Taille totale maximale des textures sur disque
+     */
+    public TextureCache(File directory, long maxBytes) throws IOException {
+        this.directory = directory.toPath();
+        this.maxBytes = maxBytes;
+        Files.createDirectories(this.directory);
+        scan();
+    }
+
+    /** Délai après lequel une texture sans hash est revalidée auprès du serveur. */
+    public void setRevalidateAfter(long millis) {
+        this.revalidateAfter = millis;
+    }
+
+    /** @return Taille totale des textures sur disque (octets). */
+    public long getSize() {
+        synchronized (this.index) {
+            return this.totalBytes;
+        }
+    }
+
+    /*──────────────────── Lecture ────────────────────*/
+
+    /**
+     * Texture déjà en cache, sans aucun appel réseau (avatar au démarrage).
+     * @return Contenu en lecture seule, ou {@code null} si absente
+     */
+    public ByteBuffer getIfCached(String url) {
+        String key = keyOf(url);
+        Entry entry = touch(key);
+        Metrics.get().cacheLookup("texture", entry != null);
+        return entry == null ? null : read(key, entry);
+    }
+
+    /** @return Le fichier de la texture s'il est en cache (ex. pour une Image JavaFX), sinon {@code null} */
+    public File getCachedFile(String url) {
+        String key = keyOf(url);
+        return touch(key) == null ? null : dataFile(key).toFile();
+    }
+
+    public ByteBuffer get(MinecraftSkin skin) throws Exception {
+        return get(skin.getUrl());
+    }
+
+    /** Version bloquante de {@link #getAsync(String, Executor)}. */
+    public ByteBuffer get(String url) throws Exception {
+        return Futures.await(getAsync(url, Futures.callerRuns()));
+    }
+
+    /**
+     * Texture depuis le cache, téléchargée (ou revalidée) si nécessaire.
+     * @return Contenu en lecture seule (position 0)
+     */
+    public CompletableFuture<ByteBuffer> getAsync(String url, Executor executor) {
+        String key = keyOf(url);
+        Entry entry = touch(key);
+        Metrics.get().cacheLookup("texture", entry != null);
+        if (entry != null && !isStale(key, entry)) {
+            try {
+                return CompletableFuture.completedFuture(read(key, entry));
+            } catch (RuntimeException e) {
+                Logger.warn("Texture {} illisible, nouveau téléchargement : {}", key, e.getMessage());
+                evict(key);
+                entry = null;
+            }
+        }
+        Entry known = entry;
+        CompletableFuture<ByteBuffer> created = new CompletableFuture<>();
+        CompletableFuture<ByteBuffer> existing = this.inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;                            // déjà en cours pour un autre appelant
+        }
+        Futures.supply(() -> fetch(url, key, known), executor).whenComplete((buffer, error) -> {
+            this.inFlight.remove(key, created);
+            if (error != null) created.completeExceptionally(Futures.unwrap(error));
+            else created.complete(buffer);
+        });
+        return created;
+    }
+
+    /**
+     * Clé de cache : le hash de la texture s'il est dans l'URL, sinon le SHA-1 de l'URL.
+     */
+    public static String keyOf(String url) {
+        String path = URI.create(url).getPath();
+        String last = path == null ? "" : path.substring(path.lastIndexOf('/') + 1);
+        if (TEXTURE_HASH.matcher(last).matches()) {
+            return last.toLowerCase();
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(AuthConstants.UTF_8));
+            StringBuilder sb = new StringBuilder("u");
+            for (byte b : digest) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-1 indisponible", e);
+        }
+    }
+
+    /*──────────────────── Téléchargement ────────────────────*/
+
+    private ByteBuffer fetch(String url, String key, Entry known) throws IOException {
+        HttpGet get = new HttpGet(url);
+        if (known != null && known.etag != null) get.setHeader("If-None-Match", known.etag);
+        if (known != null && known.lastModified != null) get.setHeader("If-Modified-Since", known.lastModified);
+
+        Path tmp = this.directory.resolve(key + ".tmp");
+        HopTimer timer = HopTimer.start(Hop.TEXTURE);
+        Entry fresh;
+        try {
+            fresh = HttpTransport.getDefault().execute(get, response -> {
+                int status = response.getStatusLine().getStatusCode();
+                timer.status(status);
+                if (status == 304 && known != null) {
+                    return null;
+                }
+                if (status != 200) {
+                    EntityUtils.consume(response.getEntity());
+                    throw new HttpStatusException(status, url, -1L);
+                }
+                HttpEntity entity = response.getEntity();
+                if (entity == null) throw new IOException("Texture vide : " + url);
+                long size = copyLimited(entity.getContent(), tmp);
+                return new Entry(size, System.currentTimeMillis(),
+                        headerValue(response.getFirstHeader("ETag")),
+                        headerValue(response.getFirstHeader("Last-Modified")));
+            });
+        } catch (IOException e) {
+            timer.failed(e);
+            Files.deleteIfExists(tmp);
+            if (known != null) {
+                // serveur injoignable : la copie locale reste utilisable
+                Logger.info("Revalidation de {} impossible, copie locale utilisée : {}", url, e.getMessage());
+                return read(key, known);
+            }
+            throw e;
+        } finally {
+            timer.stop();
+        }
+
+        if (fresh == null) {                            // 304 : inchangée
+            known.validatedAt = System.currentTimeMillis();
+            writeMeta(key, known);
+            return read(key, known);
+        }
+
+        Path target = dataFile(key);
+        Files.createDirectories(target.getParent());
+        synchronized (this.hotSet) {
+            this.hotSet.remove(key);                    // ancien mapping éventuel
+        }
+        moveAtomically(tmp, target);
+        writeMeta(key, fresh);
+        put(key, fresh);
+        return read(key, fresh);
+    }
+
+    private static long copyLimited(InputStream in, Path tmp) throws IOException {
+        long total = 0;
+        try (InputStream src = in;
+             OutputStream out = Files.newOutputStream(tmp, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = src.read(buffer)) != -1) {
+                total += n;
+                if (total > MAX_TEXTURE_BYTES) {
+                    throw new IOException("Texture trop grande (> " + MAX_TEXTURE_BYTES + " octets)");
+                }
+                out.write(buffer, 0, n);
+            }
+        }
+        return total;
+    }
+
+    /*──────────────────── Index / LRU ────────────────────*/
+
+    private Entry touch(String key) {
+        Entry entry;
+        synchronized (this.index) {
+            entry = this.index.get(key);                // met à jour l'ordre LRU
+        }
+        if (entry != null) {
+            // conserve l'ordre LRU pour le prochain lancement (au plus une fois par minute)
+            long now = System.currentTimeMillis();
+            if (now - entry.touchedAt > TimeUnit.MINUTES.toMillis(1)) {
+                entry.touchedAt = now;
+                dataFile(key).toFile().setLastModified(now);
+            }
+        }
+        return entry;
+    }
+
+    private boolean isStale(String key, Entry entry) {
+        if (key.charAt(0) != 'u') return false;        // adressée par contenu : immuable
+        return System.currentTimeMillis() - entry.validatedAt > this.revalidateAfter;
+    }
+
+    private void put(String key, Entry entry) {
+        List<String> evicted = new ArrayList<>();
+        synchronized (this.index) {
+            Entry previous = this.index.put(key, entry);
+            if (previous != null) this.totalBytes -= previous.size;
+            this.totalBytes += entry.size;
+            Iterator<Map.Entry<String, Entry>> it = this.index.entrySet().iterator();
+            while (this.totalBytes > this.maxBytes && it.hasNext()) {
+                Map.Entry<String, Entry> eldest = it.next();
+                if (eldest.getKey().equals(key)) continue;
+                this.totalBytes -= eldest.getValue().size;
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        for (String k : evicted) deleteFiles(k);
+    }
+
+    private void evict(String key) {
+        synchronized (this.index) {
+            Entry removed = this.index.remove(key);
+            if (removed != null) this.totalBytes -= removed.size;
+        }
+        deleteFiles(key);
+    }
+
+    private void deleteFiles(String key) {
+        synchronized (this.hotSet) {
+            this.hotSet.remove(key);
+        }
+        try {
+            Files.deleteIfExists(dataFile(key));
+            Files.deleteIfExists(metaFile(key));
+        } catch (IOException e) {
+            // fichier encore mappé (Windows) : il sera retiré au prochain lancement
+            Logger.debug("Suppression de la texture {} impossible : {}", key, e.getMessage());
+        }
+    }
+
+    /*──────────────────── Disque ────────────────────*/
+
+    /** Lit une texture : mapping mémoire gardé pour les plus utilisées. */
+    private ByteBuffer read(String key, Entry entry) {
+        MappedByteBuffer mapped;
+        synchronized (this.hotSet) {
+            mapped = this.hotSet.get(key);
+        }
+        if (mapped == null) {
+            try (FileChannel channel = FileChannel.open(dataFile(key), StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException e) {
+                throw new IllegalStateException("Lecture de la texture " + key + " impossible", e);
+            }
+            synchronized (this.hotSet) {
+                this.hotSet.put(key, mapped);
+            }
+        }
+        return mapped.asReadOnlyBuffer();
+    }
+
+    /** Reconstruit l'index depuis le disque, des moins récemment utilisées aux plus récentes. */
+    private void scan() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(this.directory)) {
+            for (Path shard : shards) {
+                if (Files.isDirectory(shard)) {
+                    try (DirectoryStream<Path> stream = Files.newDirectoryStream(shard, "*" + DATA_SUFFIX)) {
+                        for (Path p : stream) files.add(p);
+                    }
+                } else if (shard.getFileName().toString().endsWith(".tmp")) {
+                    Files.deleteIfExists(shard);        // téléchargement interrompu
+                }
+            }
+        }
+        files.sort((a, b) -> Long.compare(a.toFile().lastModified(), b.toFile().lastModified()));
+        for (Path p : files) {
+            String name = p.getFileName().toString();
+            String key = name.substring(0, name.length() - DATA_SUFFIX.length());
+            Entry entry = readMeta(key, p.toFile().length());
+            entry.touchedAt = p.toFile().lastModified();
+            put(key, entry);
+        }
+    }
+
+    private Path dataFile(String key) {
+        return this.directory.resolve(key.substring(0, 2)).resolve(key + DATA_SUFFIX);
+    }
+
+    private Path metaFile(String key) {
+        return this.directory.resolve(key.substring(0, 2)).resolve(key + META_SUFFIX);
+    }
+
+    private Entry readMeta(String key, long size) {
+        Properties meta = new Properties();
+        Path file = metaFile(key);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, AuthConstants.UTF_8)) {
+                meta.load(reader);
+            } catch (IOException e) {
+                // métadonnées perdues : la texture sera revalidée
+            }
+        }
+        long validatedAt;
+        try {
+            validatedAt = Long.parseLong(meta.getProperty("validatedAt", "0"));
+        } catch (NumberFormatException e) {
+            validatedAt = 0L;
+        }
+        return new Entry(size, validatedAt, meta.getProperty("etag"), meta.getProperty("lastModified"));
+    }
+
+    private void writeMeta(String key, Entry entry) throws IOException {
+        Properties meta = new Properties();
+        meta.setProperty("validatedAt", String.valueOf(entry.validatedAt));
+        if (entry.etag != null) meta.setProperty("etag", entry.etag);
+        if (entry.lastModified != null) meta.setProperty("lastModified", entry.lastModified);
+        Path target = metaFile(key);
+        Path tmp = target.resolveSibling(key + META_SUFFIX + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, AuthConstants.UTF_8)) {
+            meta.store(writer, null);
+        }
+        moveAtomically(tmp, target);
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String headerValue(Header header) {
+        return header == null ? null : header.getValue();
+    }
+
+    private static final class Entry {
+        final long size;
+        final String etag;
+        final String lastModified;
+        volatile long validatedAt;
+        volatile long touchedAt;
+
+        Entry(long size, long validatedAt, String etag, String lastModified) {
+            this.size = size;
+            this.validatedAt = validatedAt;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+}